@@ -0,0 +1,30 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the selected benchmarks twice, on one thread and on every core, so both numbers land in one report.
+// Accepts the usual JMH command line (include pattern, -p catalogSize=1000, -f, ...); an explicit -t runs once.
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.getThreads().hasValue()) {
+            new Runner(commandLine).run();
+            return;
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[]{1, cores}) {
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .build();
+            System.out.println("# Running with " + threads + " thread(s)");
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.BookService;
+import org.example.User;
+import org.example.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Hot paths of BookService against a real, fully populated catalog
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BookServiceBenchmark {
+
+    private static final int KEYWORDS = 1024; // Power of two so the rotation is a mask
+    private static final int CART_SIZE = 50;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int catalogSize;
+
+        @Param({"0"}) // Uncached by default, so the search benchmarks measure the index; try -p searchCacheSize=1024
+        public int searchCacheSize;
+
+        BookService bookService;
+        Book[] books;
+        User buyer;
+        List<Book> reviewable = new ArrayList<>();
+        List<List<Book>> carts = new ArrayList<>(); // Random carts for purchaseBooks, rotated like the keywords
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bookService = new BookService(searchCacheSize, null);
+            books = Catalogs.fillCatalog(bookService, catalogSize);
+            buyer = new User("buyer", "password", "buyer@example.com");
+            new UserService().deposit(buyer, Long.MAX_VALUE / 2); // Never runs out; stock is unlimited by default
+            for (int i = 0; i < books.length; i += 2) {
+                reviewable.add(books[i]); // Half of the catalog is reviewable
+            }
+            Random random = new Random(Catalogs.SEED);
+            for (int i = 0; i < KEYWORDS; i++) {
+                List<Book> cart = new ArrayList<>(CART_SIZE);
+                for (int j = 0; j < CART_SIZE; j++) {
+                    cart.add(books[random.nextInt(books.length)]);
+                }
+                carts.add(cart);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void clearReviews() {
+            for (int i = 0; i < books.length; i += 2) {
+                books[i].setReviews(Collections.emptyList()); // Keep review logs from growing across iterations
+            }
+            buyer.setPurchasedBooks(reviewable); // Drop what purchaseBook recorded in the last iteration
+        }
+    }
+
+    // Only the search benchmarks vary the keyword length
+    @State(Scope.Benchmark)
+    public static class Keywords {
+        @Param({"2", "4", "8"})
+        public int keywordLength;
+
+        String[] hits;
+        String[] misses;
+
+        @Setup(Level.Trial)
+        public void setUp(Catalog catalog) {
+            hits = Catalogs.hitKeywords(catalog.books, keywordLength, KEYWORDS);
+            misses = Catalogs.missKeywords(keywordLength, KEYWORDS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        Book[] spareBooks; // Books outside the catalog that addBook/removeBook cycle through
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(Catalogs.SEED + Thread.currentThread().getId());
+            spareBooks = new Book[KEYWORDS];
+            for (int i = 0; i < spareBooks.length; i++) {
+                spareBooks[i] = Catalogs.newBook(random, -i - 1);
+            }
+        }
+
+        int next() {
+            return next++ & (KEYWORDS - 1);
+        }
+
+        int nextIndex(int size) {
+            return (int) Math.floorMod(next++ * 0x9E3779B1L, (long) size); // Scatter accesses over the whole catalog
+        }
+    }
+
+    @Benchmark
+    public List<Book> searchBookHit(Catalog catalog, Keywords keywords, Cursor cursor) {
+        return catalog.bookService.searchBook(keywords.hits[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<Book> searchBookMiss(Catalog catalog, Keywords keywords, Cursor cursor) {
+        return catalog.bookService.searchBook(keywords.misses[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveBook(Catalog catalog, Cursor cursor) {
+        Book book = cursor.spareBooks[cursor.next()];
+        catalog.bookService.addBook(book);
+        return catalog.bookService.removeBook(book); // Paired so the catalog size stays at the parameter
+    }
+
+    @Benchmark
+    public boolean purchaseBook(Catalog catalog, Cursor cursor) {
+        Book book = catalog.books[cursor.nextIndex(catalog.books.length)];
+        return catalog.bookService.purchaseBook(catalog.buyer, book);
+    }
+
+    @Benchmark
+    public boolean purchaseBooks(Catalog catalog, Cursor cursor) {
+        return catalog.bookService.purchaseBooks(catalog.buyer, catalog.carts.get(cursor.next()));
+    }
+
+    @Benchmark
+    public boolean addBookReview(Catalog catalog, Cursor cursor) {
+        int index = cursor.nextIndex(catalog.books.length) & ~1; // Even indexes were purchased in setUp
+        return catalog.bookService.addBookReview(catalog.buyer, catalog.books[index], "Great read");
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.BookService;
+import org.example.User;
+import org.example.UserService;
+
+import java.util.Random;
+
+// Deterministic synthetic data shared by the benchmarks, so runs on different builds see the same catalog
+final class Catalogs {
+    static final long SEED = 42L;
+
+    private static final String[] GENRES = {
+            "Dystopian", "Fiction", "Fantasy", "Mystery", "Romance", "Science Fiction", "Horror", "Biography",
+            "History", "Poetry", "Thriller", "Travel"
+    };
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private Catalogs() {
+    }
+
+    static Book newBook(Random random, int n) {
+        String title = word(random, 4 + random.nextInt(6)) + " " + word(random, 3 + random.nextInt(8)) + " " + n;
+        String author = "Author " + word(random, 5) + " " + (n % 50_000); // Authors repeat, like a real catalog
+        String genre = GENRES[random.nextInt(GENRES.length)];
+        double price = 1 + random.nextInt(5_000) / 100.0;
+        return new Book(title, author, genre, price);
+    }
+
+    static Book[] fillCatalog(BookService bookService, int size) {
+        Random random = new Random(SEED);
+        Book[] books = new Book[size];
+        for (int i = 0; i < size; i++) {
+            books[i] = newBook(random, i);
+            bookService.addBook(books[i]);
+        }
+        return books;
+    }
+
+    static User[] fillUsers(UserService userService, int size) {
+        User[] users = new User[size];
+        for (int i = 0; i < size; i++) {
+            users[i] = new User(username(i), "password" + i, "user" + i + "@example.com");
+            userService.registerUser(users[i]);
+        }
+        return users;
+    }
+
+    static String username(int n) {
+        return "user" + n;
+    }
+
+    // Keywords cut out of existing titles, so every one of them has at least one match
+    static String[] hitKeywords(Book[] books, int length, int count) {
+        Random random = new Random(SEED + length);
+        String[] keywords = new String[count];
+        for (int i = 0; i < count; i++) {
+            String title = books[random.nextInt(books.length)].getTitle();
+            int from = random.nextInt(Math.max(1, title.length() - length + 1));
+            keywords[i] = title.substring(from, Math.min(title.length(), from + length));
+        }
+        return keywords;
+    }
+
+    // Keywords made of characters that never occur in the synthetic catalog
+    static String[] missKeywords(int length, int count) {
+        Random random = new Random(SEED - length);
+        String[] keywords = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder keyword = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                keyword.append((char) ('#' + random.nextInt(5)));
+            }
+            keywords[i] = keyword.toString();
+        }
+        return keywords;
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.BookService;
+
+import java.util.Random;
+
+// Heap retained per cataloged book, with and without compact storage, and the bytes compaction saves.
+// Not a JMH benchmark: it measures live heap after full GCs, so it runs in this JVM, one catalog at a time.
+//   java -Xmx16g -cp target/benchmarks.jar org.example.benchmarks.FootprintReport [catalogSize ...]
+public class FootprintReport {
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[]{"100000", "1000000"};
+        System.out.printf("%12s %16s %16s %12s%n", "catalogSize", "bytes/book", "compact", "saved");
+        for (String size : sizes) {
+            int catalogSize = Integer.parseInt(size);
+            long plain = bytesPerBook(catalogSize, false);
+            long compact = bytesPerBook(catalogSize, true);
+            System.out.printf("%12d %16d %16d %12d%n", catalogSize, plain, compact, plain - compact);
+        }
+    }
+
+    private static long bytesPerBook(int catalogSize, boolean compactStorage) {
+        long before = usedHeap();
+        BookService bookService = new BookService(0, null, compactStorage);
+        Random random = new Random(Catalogs.SEED);
+        for (int i = 0; i < catalogSize; i++) {
+            Book book = Catalogs.newBook(random, i);
+            // Fresh strings for every field, as a feed parser produces them (new String(String) would share the bytes)
+            bookService.addBook(new Book(book.getTitle(), new String(book.getAuthor().toCharArray()),
+                    new String(book.getGenre().toCharArray()), book.getPrice()));
+        }
+        long after = usedHeap();
+        if (bookService.getBookCount() != catalogSize) {
+            throw new IllegalStateException("Catalog was not filled"); // Also keeps the catalog reachable until here
+        }
+        return (after - before) / catalogSize;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Until a GC frees nothing more
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
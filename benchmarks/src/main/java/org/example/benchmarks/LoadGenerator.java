@@ -0,0 +1,412 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.BookService;
+import org.example.FileMetricsExporter;
+import org.example.Metrics;
+import org.example.MetricsSnapshot;
+import org.example.Persistence;
+import org.example.User;
+import org.example.UserService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Load and soak harness: replays Main's user journey (register, login, search, deposit, purchase, review) and
+// weighted mixes of its steps against in-process services with thousands of synthetic users and books, for a
+// set duration, either as fast as a fixed number of threads can go or at a target rate. Reports throughput,
+// per-step latency percentiles and error rates from the services' own Metrics, plus GC time and allocation.
+// Everything random comes from the seed, so two builds run with the same arguments see the same catalog,
+// users and per-thread operation sequences. Not a JMH benchmark: it runs in this JVM, like FootprintReport.
+//   java -Xmx4g -cp target/benchmarks.jar org.example.benchmarks.LoadGenerator [name=value ...]
+//   e.g. threads=8 rate=20000 duration=300 mix=journey:1,search:6,purchase:2,review:1 data=/tmp/soak
+public class LoadGenerator {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("books", "10000"); // Synthetic catalog size
+        DEFAULTS.put("users", "10000"); // Registered users the steps other than journey act as
+        DEFAULTS.put("threads", "4"); // Concurrency: worker threads
+        DEFAULTS.put("rate", "0"); // Target operations per second over all threads; 0 runs closed loop, flat out
+        DEFAULTS.put("warmup", "10"); // Seconds run before measuring
+        DEFAULTS.put("duration", "30"); // Seconds measured
+        DEFAULTS.put("mix", "journey:1"); // step:weight,...; steps are those of Step
+        DEFAULTS.put("seed", String.valueOf(Catalogs.SEED));
+        DEFAULTS.put("hashIterations", "1000"); // PBKDF2 rounds per password; production uses UserService.DEFAULT_HASH_ITERATIONS
+        DEFAULTS.put("data", ""); // Empty data directory to attach Persistence to; empty runs in memory
+        DEFAULTS.put("metricsFile", ""); // Also write the final metrics snapshot here, to diff between builds
+    }
+
+    // One unit of work; JOURNEY is the whole of Main, the others are single steps of it by existing users.
+    // SESSION is the authenticated call a logged-in user makes instead of sending the password again.
+    enum Step { JOURNEY, SEARCH, FUZZY_SEARCH, LOGIN, SESSION, PURCHASE, CART, REVIEW }
+
+    private static final int CART_SIZE = 5;
+    private static final int KEYWORDS = 4096;
+    private static final int SESSIONS = 1024;
+    private static final long INITIAL_BALANCE_CENTS = 100_000_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int threads = Integer.parseInt(options.get("threads"));
+        double rate = Double.parseDouble(options.get("rate"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        long seed = Long.parseLong(options.get("seed"));
+        Step[] mix = parseMix(options.get("mix"));
+        if (threads < 1 || durationNanos <= 0) {
+            throw new IllegalArgumentException("threads and duration must be positive");
+        }
+        System.out.println("# " + options);
+
+        BookService bookService = new BookService();
+        UserService userService = new UserService(Integer.parseInt(options.get("hashIterations")),
+                UserService.DEFAULT_SESSION_TTL, UserService.DEFAULT_MAX_SESSIONS);
+        Persistence persistence = options.get("data").isEmpty() ? null
+                : Persistence.open(Paths.get(options.get("data")), bookService, userService);
+        Fixture fixture = new Fixture(bookService, userService, Integer.parseInt(options.get("books")),
+                Integer.parseInt(options.get("users")), seed);
+
+        Worker[] workers = new Worker[threads];
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // Let every thread get going first
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        Thread[] running = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            long interval = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+            long first = start + interval * i / threads; // Staggered, so the threads' operations are evenly spaced
+            workers[i] = new Worker(fixture, mix, new Random(seed * 31 + i), i, interval, first, measureFrom, end);
+            running[i] = new Thread(workers[i], "load-" + i);
+            running[i].start();
+        }
+
+        LockSupport.parkNanos(measureFrom - System.nanoTime());
+        Metrics metrics = new Metrics(); // Fresh, so warmup does not count
+        bookService.setMetrics(metrics);
+        userService.setMetrics(metrics);
+        long[] gcBefore = gcTotals();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long[] gcAfter = gcTotals();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        report(snapshot, workers, (double) durationNanos / 1e9, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+                rate > 0);
+        if (!options.get("metricsFile").isEmpty()) {
+            new FileMetricsExporter(Paths.get(options.get("metricsFile"))).export(snapshot);
+        }
+        if (persistence != null) {
+            persistence.close();
+        }
+        if (fixture.failures.get() > 0) {
+            System.out.println(fixture.failures.get() + " operations threw; the first one:");
+            fixture.firstFailure.get().printStackTrace(System.out);
+            System.exit(1); // Unexpected exceptions fail the run, for scripts comparing builds
+        }
+    }
+
+    // The services under load and the synthetic data the workers share
+    private static final class Fixture {
+        final BookService bookService;
+        final UserService userService;
+        final Book[] books;
+        final User[] users;
+        final String[] passwords;
+        final String[] keywords;
+        final String[] fuzzyQueries;
+        final AtomicReferenceArray<String> tokens; // Of users[0..], reopened by whichever worker finds one expired
+        final AtomicLong failures = new AtomicLong();
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        Fixture(BookService bookService, UserService userService, int bookCount, int userCount, long seed) {
+            this.bookService = bookService;
+            this.userService = userService;
+            Random random = new Random(seed);
+            List<Book> catalog = new ArrayList<>(bookCount);
+            for (int i = 0; i < bookCount; i++) {
+                catalog.add(Catalogs.newBook(random, i));
+            }
+            books = bookService.addBooks(catalog).toArray(new Book[0]);
+            users = new User[userCount];
+            passwords = new String[userCount];
+            for (int i = 0; i < userCount; i++) {
+                passwords[i] = "password" + i;
+                users[i] = new User(Catalogs.username(i), passwords[i], "user" + i + "@example.com");
+                userService.registerUser(users[i]);
+                userService.deposit(users[i], INITIAL_BALANCE_CENTS); // Enough that purchases never run dry
+            }
+            keywords = Catalogs.hitKeywords(books, 4, KEYWORDS);
+            fuzzyQueries = new String[KEYWORDS];
+            for (int i = 0; i < KEYWORDS; i++) {
+                String author = books[random.nextInt(books.length)].getAuthor();
+                fuzzyQueries[i] = author.substring(0, author.length() - 1); // One letter short
+            }
+            tokens = new AtomicReferenceArray<>(Math.min(userCount, SESSIONS));
+            for (int i = 0; i < tokens.length(); i++) {
+                tokens.set(i, userService.openSession(users[i].getUsername(), passwords[i]));
+            }
+        }
+
+        void failed(Throwable failure) {
+            failures.incrementAndGet();
+            firstFailure.compareAndSet(null, failure);
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final Fixture fixture;
+        private final Step[] mix;
+        private final Random random;
+        private final int index;
+        private final long interval; // Nanoseconds between this thread's operations; 0 for closed loop
+        private final long start; // When the first operation is due
+        private final long measureFrom;
+        private final long end;
+        private int journeys;
+        long operations;
+        long allocatedBytes;
+        long totalLagNanos;
+        long maxLagNanos;
+
+        Worker(Fixture fixture, Step[] mix, Random random, int index, long interval, long start, long measureFrom,
+               long end) {
+            this.fixture = fixture;
+            this.mix = mix;
+            this.random = random;
+            this.index = index;
+            this.interval = interval;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            com.sun.management.ThreadMXBean threadBean = allocationBean();
+            long threadId = Thread.currentThread().getId();
+            long allocatedAtMeasure = -1;
+            long next = start;
+            LockSupport.parkNanos(next - System.nanoTime());
+            while (true) {
+                long now = System.nanoTime();
+                if (interval > 0 && now < next) {
+                    LockSupport.parkNanos(next - now);
+                    now = System.nanoTime();
+                }
+                if (now >= end) {
+                    break;
+                }
+                boolean measuring = now >= measureFrom;
+                if (measuring && allocatedAtMeasure < 0 && threadBean != null) {
+                    allocatedAtMeasure = threadBean.getThreadAllocatedBytes(threadId);
+                }
+                Step step = mix[random.nextInt(mix.length)];
+                try {
+                    run(step);
+                } catch (RuntimeException e) {
+                    fixture.failed(e);
+                }
+                if (measuring) {
+                    operations++;
+                    if (interval > 0) {
+                        long lag = now - next; // Late starts count against the run instead of being skipped
+                        totalLagNanos += lag;
+                        maxLagNanos = Math.max(maxLagNanos, lag);
+                    }
+                }
+                next += interval;
+            }
+            if (allocatedAtMeasure >= 0) {
+                allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedAtMeasure;
+            }
+        }
+
+        private void run(Step step) {
+            BookService bookService = fixture.bookService;
+            UserService userService = fixture.userService;
+            int u = random.nextInt(fixture.users.length);
+            User user = fixture.users[u];
+            switch (step) {
+                case JOURNEY:
+                    journey();
+                    break;
+                case SEARCH:
+                    bookService.searchBook(fixture.keywords[random.nextInt(KEYWORDS)]);
+                    break;
+                case FUZZY_SEARCH:
+                    bookService.fuzzySearchBook(fixture.fuzzyQueries[random.nextInt(KEYWORDS)]);
+                    break;
+                case LOGIN:
+                    userService.loginUser(user.getUsername(), fixture.passwords[u]);
+                    break;
+                case SESSION: {
+                    int s = random.nextInt(fixture.tokens.length());
+                    String token = fixture.tokens.get(s);
+                    if (userService.authenticate(token) == null) {
+                        // Expired (runs can outlast the TTL) or evicted: log in again, as a client would
+                        String reopened = userService.openSession(fixture.users[s].getUsername(), fixture.passwords[s]);
+                        if (reopened == null) {
+                            throw new IllegalStateException("Could not reopen a session for " + fixture.users[s].getUsername());
+                        }
+                        fixture.tokens.compareAndSet(s, token, reopened);
+                    }
+                    break;
+                }
+                case PURCHASE:
+                    bookService.purchaseBook(user, randomBook());
+                    break;
+                case CART: {
+                    List<Book> cart = new ArrayList<>(CART_SIZE);
+                    for (int i = 0; i < CART_SIZE; i++) {
+                        cart.add(randomBook());
+                    }
+                    bookService.purchaseBooks(user, cart);
+                    break;
+                }
+                case REVIEW: {
+                    List<Book> owned = user.getPurchasedBooks();
+                    Book book;
+                    synchronized (owned) {
+                        book = owned.isEmpty() ? null : owned.get(random.nextInt(owned.size()));
+                    }
+                    if (book == null) {
+                        book = randomBook();
+                        bookService.purchaseBook(user, book); // Buy one first, as Main does
+                    }
+                    bookService.addBookReview(user, book, "Review " + random.nextInt(1000));
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown step " + step);
+            }
+        }
+
+        // Main's scripted journey, as a new user whose name depends only on the thread and the journey count
+        private void journey() {
+            BookService bookService = fixture.bookService;
+            UserService userService = fixture.userService;
+            String username = "journey-" + index + "-" + journeys++;
+            userService.registerUser(new User(username, "password", username + "@example.com"));
+            User user = userService.loginUser(username, "password");
+            if (user == null) {
+                throw new IllegalStateException("Login failed right after registering " + username);
+            }
+            List<Book> found = bookService.searchBook(fixture.keywords[random.nextInt(KEYWORDS)]);
+            userService.deposit(user, 10_000);
+            Book book = found.isEmpty() ? randomBook() : found.get(0);
+            bookService.purchaseBook(user, book);
+            bookService.addBookReview(user, book, "Amazing book!");
+        }
+
+        private Book randomBook() {
+            return fixture.books[random.nextInt(fixture.books.length)];
+        }
+    }
+
+    private static void report(MetricsSnapshot snapshot, Worker[] workers, double seconds, long gcCount,
+                               long gcMillis, boolean paced) {
+        long operations = 0;
+        long allocated = 0;
+        long totalLag = 0;
+        long maxLag = 0;
+        for (Worker worker : workers) {
+            operations += worker.operations;
+            allocated += worker.allocatedBytes;
+            totalLag += worker.totalLagNanos;
+            maxLag = Math.max(maxLag, worker.maxLagNanos);
+        }
+        System.out.printf(Locale.ROOT, "%d operations in %.1f s: %.1f ops/s%n", operations, seconds, operations / seconds);
+        System.out.printf(Locale.ROOT, "%-16s %10s %10s %10s %10s %10s %10s %8s%n",
+                "step", "count", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us", "errors");
+        for (Metrics.Operation operation : Metrics.Operation.values()) {
+            long count = snapshot.getCount(operation);
+            if (count == 0) {
+                continue;
+            }
+            // Expected outcomes of a healthy run; anything else (out of stock, wrong password, ...) is an error
+            long errors = count - snapshot.getCount(operation, Metrics.Outcome.SUCCESS)
+                    - snapshot.getCount(operation, Metrics.Outcome.NO_RESULTS);
+            System.out.printf(Locale.ROOT, "%-16s %10d %10.1f %10d %10d %10d %10d %7.2f%%%n",
+                    operation.getLabel(), count, count / seconds,
+                    snapshot.getLatencyNanos(operation, 50) / 1000, snapshot.getLatencyNanos(operation, 99) / 1000,
+                    snapshot.getLatencyNanos(operation, 99.9) / 1000, snapshot.getMaxLatencyNanos(operation) / 1000,
+                    100.0 * errors / count);
+        }
+        if (paced && operations > 0) {
+            System.out.printf(Locale.ROOT, "schedule lag: mean %d us, max %d us (start delays behind the target rate)%n",
+                    totalLag / operations / 1000, maxLag / 1000);
+        }
+        System.out.printf(Locale.ROOT, "gc: %d collections, %d ms (%.2f%% of the run)%n",
+                gcCount, gcMillis, gcMillis / (seconds * 10));
+        if (allocated > 0) {
+            System.out.printf(Locale.ROOT, "allocation: %.1f MB/s, %d bytes/op%n",
+                    allocated / seconds / (1 << 20), operations > 0 ? allocated / operations : 0);
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0 || !DEFAULTS.containsKey(arg.substring(0, equals))) {
+                throw new IllegalArgumentException("Expected name=value with a name from " + DEFAULTS.keySet() + ": " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    // "journey:1,search:6" -> a table with one entry per unit of weight, drawn from uniformly
+    static Step[] parseMix(String mix) {
+        List<Step> table = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] stepAndWeight = part.trim().split(":");
+            Step step = Step.valueOf(stepAndWeight[0].trim().toUpperCase(Locale.ROOT));
+            int weight = stepAndWeight.length > 1 ? Integer.parseInt(stepAndWeight[1].trim()) : 1;
+            if (weight < 0 || weight > 1000) {
+                throw new IllegalArgumentException("Weight must be between 0 and 1000: " + part);
+            }
+            table.addAll(Collections.nCopies(weight, step));
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix: " + mix + "; steps are " + Arrays.toString(Step.values()));
+        }
+        return table.toArray(new Step[0]);
+    }
+
+    // Total collections and milliseconds spent in them, over every collector
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    // Per-thread allocation counters, where the JVM has them
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.BookService;
+import org.example.Persistence;
+import org.example.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Startup time: loading a snapshot of the given size and replaying a log tail written after it
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class RecoveryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DataDirectory {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int catalogSize;
+
+        @Param({"1000"})
+        public int tailMutations;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("recovery-benchmark");
+            BookService bookService = new BookService();
+            // Cheap password hashes keep a million users quick to set up; recovery reads them back as stored
+            UserService userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, UserService.DEFAULT_MAX_SESSIONS);
+            Catalogs.fillCatalog(bookService, catalogSize);
+            Catalogs.fillUsers(userService, catalogSize / 10);
+            try (Persistence persistence = Persistence.open(directory, bookService, userService, Duration.ofDays(1))) {
+                persistence.checkpoint();
+                Random random = new Random(Catalogs.SEED);
+                Book[] tail = new Book[tailMutations];
+                for (int i = 0; i < tail.length; i++) {
+                    tail[i] = Catalogs.newBook(random, catalogSize + i);
+                }
+                IntStream.range(0, tail.length).parallel().forEach(i -> bookService.addBook(tail[i])); // Group-committed
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public int recover(DataDirectory data) throws IOException {
+        BookService bookService = new BookService();
+        try (Persistence ignored = Persistence.open(data.directory, bookService, new UserService(), Duration.ofDays(1))) {
+            return bookService.getBookCount();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.benchmarks;
+
+import org.example.Book;
+import org.example.ShardedBookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Single-query latency of a sharded catalog as shards are added; compare shardCount=1 with the rest.
+// Meant for the one-thread run: with every core already busy, fanning out cannot make a query faster.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ShardedSearchBenchmark {
+
+    private static final int KEYWORDS = 1024; // Power of two so the rotation is a mask
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"100000", "1000000"})
+        public int catalogSize;
+
+        @Param({"1", "2", "4", "8"})
+        public int shardCount;
+
+        @Param({"2", "4"}) // Short keywords scan, longer ones use the trigram index
+        public int keywordLength;
+
+        ShardedBookService bookService;
+        String[] hits;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bookService = new ShardedBookService(shardCount, 0, ForkJoinPool.commonPool()); // Uncached
+            Random random = new Random(Catalogs.SEED);
+            Book[] books = new Book[catalogSize];
+            for (int i = 0; i < books.length; i++) {
+                books[i] = Catalogs.newBook(random, i);
+            }
+            List<Book> added = bookService.addBooks(Arrays.asList(books));
+            if (added.size() != catalogSize) {
+                throw new IllegalStateException("Catalog was not filled");
+            }
+            hits = Catalogs.hitKeywords(books, keywordLength, KEYWORDS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            return next++ & (KEYWORDS - 1);
+        }
+    }
+
+    @Benchmark
+    public List<Book> searchBook(Catalog catalog, Cursor cursor) {
+        return catalog.bookService.searchBook(catalog.hits[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<Book> findBooksByPriceRange(Catalog catalog, Cursor cursor) {
+        double from = 1 + cursor.next() % 40;
+        return catalog.bookService.findBooksByPriceRange(from, from + 0.5);
+    }
+}
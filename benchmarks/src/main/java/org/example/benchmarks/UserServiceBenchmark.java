@@ -0,0 +1,99 @@
+package org.example.benchmarks;
+
+import org.example.User;
+import org.example.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hot paths of UserService against a real, fully populated user base
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UserServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Users {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int userCount;
+
+        // PBKDF2 rounds per password. One keeps filling millions of users quick and the benchmarks on the lookups;
+        // -p hashIterations=210000 (the default) with a small userCount measures what a real login costs.
+        @Param({"1"})
+        public int hashIterations;
+
+        UserService userService;
+        User[] users;
+        String[] tokens; // Sessions of the first users, for authenticate
+        final AtomicInteger freshNames = new AtomicInteger(); // Names handed out to registerUserNew
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            // Rebuilt every iteration so the users registered by registerUserNew don't pile up
+            userService = new UserService(hashIterations, UserService.DEFAULT_SESSION_TTL, UserService.DEFAULT_MAX_SESSIONS);
+            users = Catalogs.fillUsers(userService, userCount);
+            freshNames.set(userCount);
+            tokens = new String[Math.min(userCount, 1024)];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = userService.openSession(Catalogs.username(i), "password" + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int nextIndex(int size) {
+            return (int) Math.floorMod(next++ * 0x9E3779B1L, (long) size);
+        }
+    }
+
+    @Benchmark
+    public boolean registerUserNew(Users users) {
+        int n = users.freshNames.getAndIncrement();
+        return users.userService.registerUser(new User(Catalogs.username(n), "password", "new@example.com"));
+    }
+
+    @Benchmark
+    public boolean registerUserTaken(Users users, Cursor cursor) {
+        return users.userService.registerUser(users.users[cursor.nextIndex(users.users.length)]);
+    }
+
+    @Benchmark
+    public User loginUser(Users users, Cursor cursor) {
+        int n = cursor.nextIndex(users.users.length);
+        return users.userService.loginUser(Catalogs.username(n), "password" + n);
+    }
+
+    // What an authenticated call costs once the login has been paid for
+    @Benchmark
+    public User authenticate(Users users, Cursor cursor) {
+        return users.userService.authenticate(users.tokens[cursor.nextIndex(users.tokens.length)]);
+    }
+
+    @Benchmark
+    public User loginUserWrongPassword(Users users, Cursor cursor) {
+        int n = cursor.nextIndex(users.users.length);
+        return users.userService.loginUser(Catalogs.username(n), "wrong");
+    }
+
+    @Benchmark
+    public User loginUserNotFound(Users users, Cursor cursor) {
+        return users.userService.loginUser("nobody" + cursor.nextIndex(users.users.length), "password");
+    }
+}
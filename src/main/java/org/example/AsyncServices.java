@@ -0,0 +1,110 @@
+package org.example;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Non-blocking facade over a BookService and UserService: every call runs on an executor and returns a
+// CompletableFuture. By default that is one virtual thread per call on JDKs that have them (21+), so
+// calls blocked on the write-ahead log don't each pin a platform thread, and a fixed pool otherwise.
+public final class AsyncServices implements Closeable {
+    private static final int FALLBACK_THREADS_PER_CORE = 4; // Calls mostly wait on locks and fsync, not the CPU
+
+    private final BookService bookService;
+    private final UserService userService;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+
+    public AsyncServices(BookService bookService, UserService userService) {
+        this(bookService, userService, newDefaultExecutor(), true);
+    }
+
+    // The executor stays the caller's to shut down
+    public AsyncServices(BookService bookService, UserService userService, Executor executor) {
+        this(bookService, userService, executor, false);
+    }
+
+    private AsyncServices(BookService bookService, UserService userService, Executor executor, boolean ownsExecutor) {
+        this.bookService = bookService;
+        this.userService = userService;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public CompletableFuture<List<Book>> searchBook(String keyword) {
+        return CompletableFuture.supplyAsync(() -> bookService.searchBook(keyword), executor);
+    }
+
+    public CompletableFuture<List<Book>> fuzzySearchBook(String query) {
+        return CompletableFuture.supplyAsync(() -> bookService.fuzzySearchBook(query), executor);
+    }
+
+    public CompletableFuture<SearchPage> searchBookPage(String keyword, String cursor, int limit) {
+        return CompletableFuture.supplyAsync(() -> bookService.searchBookPage(keyword, cursor, limit), executor);
+    }
+
+    public CompletableFuture<Boolean> purchaseBook(User user, Book book) {
+        return CompletableFuture.supplyAsync(() -> bookService.purchaseBook(user, book), executor);
+    }
+
+    public CompletableFuture<Boolean> purchaseBooks(User user, Collection<Book> books) {
+        return CompletableFuture.supplyAsync(() -> bookService.purchaseBooks(user, books), executor);
+    }
+
+    public CompletableFuture<Boolean> addBookReview(User user, Book book, String review) {
+        return CompletableFuture.supplyAsync(() -> bookService.addBookReview(user, book, review), executor);
+    }
+
+    public CompletableFuture<Boolean> registerUser(User user) {
+        return CompletableFuture.supplyAsync(() -> userService.registerUser(user), executor);
+    }
+
+    // Completes with null when the login fails, like UserService.loginUser
+    public CompletableFuture<User> loginUser(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> userService.loginUser(username, password), executor);
+    }
+
+    // The password hash makes a login the slowest call here; completes with null when it fails
+    public CompletableFuture<String> openSession(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> userService.openSession(username, password), executor);
+    }
+
+    // Shuts down the default executor; calls already submitted still complete
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    // Virtual-thread-per-task executor when the running JDK has one, otherwise a pool of daemon threads.
+    // Looked up reflectively because the project still compiles for Java 11.
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * FALLBACK_THREADS_PER_CORE, runnable -> {
+                Thread thread = new Thread(runnable, "async-service-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
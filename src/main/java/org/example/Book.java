@@ -1,15 +1,45 @@
 package org.example;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Book {
+    public static final int UNLIMITED_STOCK = -1; // Stock is not tracked, every purchase finds a copy
 
-    private String title;
-    private String author;
-    private String genre;
-    private double price;
-    private List<String> reviews = new ArrayList<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(); // Shared so IDs are unique across catalogs
+    // Field updaters instead of the book's monitor, which setters hold while catalogs update their indexes
+    private static final AtomicIntegerFieldUpdater<Book> ID_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Book.class, "id");
+    private static final AtomicReferenceFieldUpdater<Book, Object> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Book.class, Object.class, "listeners");
+    private static final AtomicReferenceFieldUpdater<Book, String> AUTHOR_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Book.class, String.class, "author");
+    private static final AtomicReferenceFieldUpdater<Book, String> GENRE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Book.class, String.class, "genre");
+    private static final AtomicIntegerFieldUpdater<Book> STOCK_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Book.class, "stock");
+    private static final AtomicReferenceFieldUpdater<Book, ReviewLog> REVIEWS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Book.class, ReviewLog.class, "reviews");
+
+    private volatile int id; // 0 until the book first enters a catalog, then stable for its lifetime
+
+    private volatile String title;
+    private volatile String author;
+    private volatile String genre;
+    private volatile double price;
+    private volatile int stock = UNLIMITED_STOCK; // Copies left; purchases take them with a CAS, not the monitor
+    private volatile ReviewLog reviews; // Created by the first review, so unreviewed books carry no review storage
+    // Null, the only listener, or a copy-on-write BookChangeListener[] when there are several. A book is
+    // usually in one catalog, so it needs no list object of its own.
+    private volatile Object listeners;
+
+    // Fields whose changes are reported to listeners
+    enum Field { TITLE, AUTHOR, GENRE, PRICE, STOCK, REVIEWS }
 
 
     public Book(String title, String author, String genre, double price) {
@@ -24,46 +54,229 @@ public class Book {
         this.author = author;
         this.genre = genre;
         this.price = price;
-        this.reviews = reviews;
+        setReviews(reviews);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    int assignId() {
+        if (id == 0) {
+            ID_UPDATER.compareAndSet(this, 0, NEXT_ID.incrementAndGet());
+        }
+        return id;
+    }
+
+    // Recovery gives a reloaded book back the ID it had before the restart
+    void restoreId(int id) {
+        this.id = id;
+        NEXT_ID.accumulateAndGet(id, Math::max);
     }
 
     public String getTitle() {
         return title;
     }
 
-    public void setTitle(String title) {
+    public synchronized void setTitle(String title) {
+        String oldTitle = this.title;
         this.title = title;
+        fireChanged(Field.TITLE, oldTitle);
     }
 
     public String getAuthor() {
         return author;
     }
 
-    public void setAuthor(String author) {
+    public synchronized void setAuthor(String author) {
+        String oldAuthor = this.author;
         this.author = author;
+        fireChanged(Field.AUTHOR, oldAuthor);
     }
 
     public String getGenre() {
         return genre;
     }
 
-    public void setGenre(String genre) {
+    public synchronized void setGenre(String genre) {
+        String oldGenre = this.genre;
         this.genre = genre;
+        fireChanged(Field.GENRE, oldGenre);
     }
 
+    // Read-only live view, oldest first; reviews are added through BookService.addBookReview
     public List<String> getReviews() {
-        return reviews;
+        return new ReviewsView();
     }
 
-    public void setReviews(List<String> reviews) {
-        this.reviews = reviews;
+    // Replaces all reviews with a copy of the given ones
+    public synchronized void setReviews(List<String> reviews) {
+        this.reviews = reviews.isEmpty() ? null : new ReviewLog(reviews);
+        fireChanged(Field.REVIEWS, null); // Reported so a catalog can journal them; nothing indexes reviews
+    }
+
+    void addReview(String review) {
+        ReviewLog log = reviews;
+        if (log == null) {
+            REVIEWS_UPDATER.compareAndSet(this, null, new ReviewLog());
+            log = reviews;
+        }
+        log.append(review);
+    }
+
+    // Null until the first review
+    ReviewLog reviewLog() {
+        return reviews;
     }
 
     public double getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public synchronized void setPrice(double price) {
+        double oldPrice = this.price;
         this.price = price;
+        fireChanged(Field.PRICE, oldPrice);
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    // Sets the number of copies for sale, or UNLIMITED_STOCK to stop tracking it
+    public synchronized void setStock(int stock) {
+        if (stock < UNLIMITED_STOCK) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        int oldStock = this.stock;
+        this.stock = stock;
+        fireChanged(Field.STOCK, oldStock);
+    }
+
+    // Takes one copy if any is left. Lock-free, so a flash sale on one title never oversells and never
+    // blocks on the book's monitor.
+    boolean reserveCopy() {
+        while (true) {
+            int current = stock;
+            if (current == UNLIMITED_STOCK) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+            if (STOCK_UPDATER.compareAndSet(this, current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Gives back a copy taken by reserveCopy when the purchase fails further on
+    void releaseCopy() {
+        while (true) {
+            int current = stock;
+            if (current == UNLIMITED_STOCK || STOCK_UPDATER.compareAndSet(this, current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    // Recovery sets the stock as it was logged, without notifying anyone
+    void restoreStock(int stock) {
+        this.stock = stock;
+    }
+
+    void addChangeListener(BookChangeListener listener) {
+        while (true) {
+            Object current = listeners;
+            Object updated;
+            if (current == null) {
+                updated = listener;
+            } else if (current instanceof BookChangeListener) {
+                updated = new BookChangeListener[]{(BookChangeListener) current, listener};
+            } else {
+                BookChangeListener[] array = (BookChangeListener[]) current;
+                BookChangeListener[] copy = Arrays.copyOf(array, array.length + 1);
+                copy[array.length] = listener;
+                updated = copy;
+            }
+            if (LISTENERS_UPDATER.compareAndSet(this, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    void removeChangeListener(BookChangeListener listener) {
+        while (true) {
+            Object current = listeners;
+            Object updated;
+            if (current == listener) {
+                updated = null;
+            } else if (current instanceof BookChangeListener[]) {
+                BookChangeListener[] array = (BookChangeListener[]) current;
+                int index = Arrays.asList(array).indexOf(listener);
+                if (index < 0) {
+                    return;
+                }
+                BookChangeListener[] copy = new BookChangeListener[array.length - 1];
+                System.arraycopy(array, 0, copy, 0, index);
+                System.arraycopy(array, index + 1, copy, index, copy.length - index);
+                updated = copy.length == 1 ? copy[0] : copy;
+            } else {
+                return; // Not registered
+            }
+            if (LISTENERS_UPDATER.compareAndSet(this, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    // Swaps the author and genre for equal strings shared by the rest of the catalog. A CAS rather than the
+    // monitor, because catalogs call this under their own lock; a setter that got in first simply wins.
+    void shareStrings(String sharedAuthor, String sharedGenre) {
+        String current = author;
+        if (current != sharedAuthor && sharedAuthor != null && sharedAuthor.equals(current)) {
+            AUTHOR_UPDATER.compareAndSet(this, current, sharedAuthor);
+        }
+        current = genre;
+        if (current != sharedGenre && sharedGenre != null && sharedGenre.equals(current)) {
+            GENRE_UPDATER.compareAndSet(this, current, sharedGenre);
+        }
+    }
+
+    private final class ReviewsView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            ReviewLog log = reviews;
+            if (log == null) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+            }
+            return log.get(index);
+        }
+
+        @Override
+        public int size() {
+            ReviewLog log = reviews;
+            return log == null ? 0 : log.size();
+        }
+
+        @Override
+        public Object[] toArray() {
+            ReviewLog log = reviews;
+            return log == null ? new Object[0] : log.toArray(); // One consistent copy, unlike size() then get()
+        }
+    }
+
+    private void fireChanged(Field field, Object oldValue) {
+        Object current = listeners;
+        if (current == null) {
+            return; // Not in any catalog, nobody to notify
+        }
+        if (current instanceof BookChangeListener) {
+            ((BookChangeListener) current).bookChanged(this, field, oldValue);
+            return;
+        }
+        for (BookChangeListener listener : (BookChangeListener[]) current) {
+            listener.bookChanged(this, field, oldValue);
+        }
     }
 }
@@ -0,0 +1,6 @@
+package org.example;
+
+// Notified whenever a field of a cataloged book changes, so indexes can stay in sync
+interface BookChangeListener {
+    void bookChanged(Book book, Book.Field field, Object oldValue);
+}
@@ -0,0 +1,188 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bulk-loads a CSV or JSONL catalog feed into a BookService. The calling thread reads the file in batches of
+// lines, a pool parses the batches in parallel, and the calling thread adds each parsed batch with one
+// BookService.addBooks call, in file order. At most two batches per parser thread are in flight, so memory
+// stays bounded by the batch size whatever the size of the file. Books with the same title, author, genre
+// and price as one already in the catalog (or earlier in the feed) are skipped as duplicates.
+public final class BookImporter {
+    public enum Format {
+        CSV, JSONL;
+
+        // By file extension: .csv is CSV, anything else (.jsonl, .ndjson, ...) is JSONL
+        static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : JSONL;
+        }
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+
+    private final BookService bookService;
+    private final int parallelism;
+    private final int batchSize;
+
+    public BookImporter(BookService bookService) {
+        this(bookService, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    public BookImporter(BookService bookService, int parallelism, int batchSize) {
+        if (parallelism < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Parallelism and batch size must be positive");
+        }
+        this.bookService = bookService;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importFile(Path file) throws IOException {
+        return importFile(file, Format.of(file), ImportListener.NONE);
+    }
+
+    public ImportResult importFile(Path file, Format format, ImportListener listener) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, format, listener);
+        }
+    }
+
+    public ImportResult importFrom(Reader source, Format format, ImportListener listener) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "import-parser-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        Progress progress = new Progress(listener);
+        Deque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+        try {
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(batchSize);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isCsvHeader(format, line)) {
+                    progress.lines++;
+                    continue;
+                }
+                if (lines.isEmpty()) {
+                    firstLine = lineNumber;
+                }
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    submit(parsers, inFlight, lines, firstLine, format, progress);
+                    lines = new ArrayList<>(batchSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(parsers, inFlight, lines, firstLine, format, progress);
+            }
+            while (!inFlight.isEmpty()) {
+                insert(inFlight.removeFirst(), progress);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        return new ImportResult(progress.lines, progress.imported, progress.duplicates, progress.failed,
+                progress.errors, System.nanoTime() - start);
+    }
+
+    private void submit(ExecutorService parsers, Deque<Future<ParsedBatch>> inFlight, List<String> lines,
+                        long firstLine, Format format, Progress progress) throws IOException {
+        if (inFlight.size() >= parallelism * BATCHES_IN_FLIGHT_PER_THREAD) {
+            insert(inFlight.removeFirst(), progress); // Wait for the oldest batch before reading further
+        }
+        inFlight.addLast(parsers.submit(() -> parse(lines, firstLine, format)));
+    }
+
+    private void insert(Future<ParsedBatch> pending, Progress progress) throws IOException {
+        ParsedBatch batch;
+        try {
+            batch = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Parser failed", e.getCause());
+        }
+        int added = batch.books.isEmpty() ? 0 : bookService.addBooks(batch.books, true).size();
+        progress.batchDone(batch, added);
+    }
+
+    private static ParsedBatch parse(List<String> lines, long firstLine, Format format) {
+        ParsedBatch batch = new ParsedBatch(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue; // Kept in the batch only so that line numbers stay right
+            }
+            try {
+                batch.books.add(format == Format.CSV ? BookRecordParser.parseCsv(line) : BookRecordParser.parseJson(line));
+            } catch (IllegalArgumentException e) {
+                batch.errors.add(new ImportError(firstLine + i, line, e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    private static boolean isCsvHeader(Format format, String line) {
+        return format == Format.CSV && line.replace(" ", "").equalsIgnoreCase(BookRecordParser.CSV_HEADER);
+    }
+
+    private static final class ParsedBatch {
+        final int lines;
+        final List<Book> books;
+        final List<ImportError> errors = new ArrayList<>();
+
+        ParsedBatch(int lines) {
+            this.lines = lines;
+            this.books = new ArrayList<>(lines);
+        }
+    }
+
+    // Running totals, only touched by the importing thread
+    private static final class Progress {
+        private final ImportListener listener;
+        private final List<ImportError> errors = new ArrayList<>();
+        long lines;
+        long imported;
+        long duplicates;
+        long failed;
+
+        Progress(ImportListener listener) {
+            this.listener = listener;
+        }
+
+        void batchDone(ParsedBatch batch, int added) {
+            lines += batch.lines;
+            imported += added;
+            duplicates += batch.books.size() - added;
+            failed += batch.errors.size();
+            for (ImportError error : batch.errors) {
+                if (errors.size() < ImportResult.MAX_ERRORS) {
+                    errors.add(error);
+                }
+                listener.recordFailed(error);
+            }
+            listener.progress(lines, imported, duplicates, failed);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns one line of a catalog feed into a Book. Both formats carry title, author, genre and price:
+//   CSV:   title,author,genre,price - fields may be quoted, with "" for a quote inside a quoted field
+//   JSONL: one flat object per line, e.g. {"title":"1984","author":"George Orwell","genre":"Dystopian","price":9.99}
+// Malformed lines throw IllegalArgumentException with a message fit for an import error report.
+final class BookRecordParser {
+    static final String CSV_HEADER = "title,author,genre,price";
+
+    private BookRecordParser() {
+    }
+
+    static Book parseCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Unterminated quoted field " + (fields.size() + 1));
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"'); // Escaped quote
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field " + (fields.size() + 1));
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= line.length()) {
+                break;
+            }
+            i++; // Skip the comma
+        }
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("Expected 4 fields (" + CSV_HEADER + ") but found " + fields.size());
+        }
+        return newBook(fields.get(0), fields.get(1), fields.get(2), parsePrice(fields.get(3).trim()));
+    }
+
+    static Book parseJson(String line) {
+        JsonCursor json = new JsonCursor(line);
+        String title = null;
+        String author = null;
+        String genre = null;
+        Double price = null;
+        json.expect('{');
+        if (!json.tryConsume('}')) {
+            do {
+                String key = json.readString();
+                json.expect(':');
+                switch (key) {
+                    case "title":
+                        title = json.readString();
+                        break;
+                    case "author":
+                        author = json.readString();
+                        break;
+                    case "genre":
+                        genre = json.readString();
+                        break;
+                    case "price":
+                        price = parsePrice(json.readNumber());
+                        break;
+                    default:
+                        json.skipScalar(); // Feeds may carry extra fields we don't store
+                }
+            } while (json.tryConsume(','));
+            json.expect('}');
+        }
+        json.expectEnd();
+        if (price == null) {
+            throw new IllegalArgumentException("Missing field \"price\"");
+        }
+        return newBook(title, author, genre, price);
+    }
+
+    private static Book newBook(String title, String author, String genre, double price) {
+        requireText("title", title);
+        requireText("author", author);
+        requireText("genre", genre);
+        return new Book(title, author, genre, price);
+    }
+
+    private static void requireText(String name, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing field \"" + name + "\"");
+        }
+    }
+
+    private static double parsePrice(String text) {
+        double price;
+        try {
+            price = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price \"" + text + "\"");
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Invalid price \"" + text + "\"");
+        }
+        return price;
+    }
+
+    // Just enough of a JSON reader for flat objects of strings, numbers, booleans and nulls
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            skipWhitespace();
+            if (position >= text.length() || text.charAt(position) != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        boolean tryConsume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Unexpected trailing characters");
+            }
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escape = text.charAt(position++);
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escape);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Truncated \\u escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid \\u escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw error("Invalid escape \\" + escape);
+                }
+            }
+        }
+
+        String readNumber() {
+            skipWhitespace();
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Expected a number");
+            }
+            return text.substring(start, position);
+        }
+
+        void skipScalar() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Expected a value");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                throw error("Nested values are not supported");
+            } else if (text.startsWith("true", position) || text.startsWith("null", position)) {
+                position += 4;
+            } else if (text.startsWith("false", position)) {
+                position += 5;
+            } else {
+                readNumber();
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
@@ -1,47 +1,898 @@
 package org.example;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BookService {
-    private List<Book> bookDatabase = new ArrayList<>(); // A list to simulate a book database
+    private static final Comparator<Book> PRICE_ORDER =
+            Comparator.comparingDouble(Book::getPrice).thenComparingInt(Book::getId);
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final long NO_CURSOR = -1;
+    private static final int DEFAULT_SEARCH_CACHE_SIZE = 1024;
+
+    private final Map<Integer, Book> bookDatabase = new LinkedHashMap<>(); // Books by ID, in insertion order, to simulate a book database
+    private final TrigramIndex searchIndex = new TrigramIndex(bookDatabase::get); // Keeps keyword searches off the full scan
+    private final PriceIndex priceIndex = new PriceIndex(); // Books ordered by price, for range and top-k queries
+    private final FacetIndex genreIndex = new FacetIndex(Book::getGenre); // Exact genre -> books, for browse counts
+    private final FacetIndex authorIndex = new FacetIndex(Book::getAuthor); // Exact author -> books
+    private final FuzzyIndex fuzzyIndex = new FuzzyIndex(); // Normalized title and author words, for fuzzySearchBook
+    private final CatalogVersions versions = new CatalogVersions(); // Immutable snapshots for lock-free readers
+    private final CoPurchaseIndex coPurchases = new CoPurchaseIndex(); // Books bought by the same customers, for getRecommendations
+    private EquivalenceIndex equivalents; // Books by all their fields, built by the first deduplicating addBooks
+    private final SearchCache searchCache; // Results of recent searchBook calls, invalidated by catalog changes
+    private final boolean compactStorage;
+    private final BookChangeListener indexUpdater = this::bookChanged;
+    // Searches and lookups share the read lock so they run in parallel; catalog changes take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Journal journal = Journal.NONE; // Records mutations once persistence is attached
+    private volatile Metrics metrics = Metrics.DISABLED;
+    private volatile ChangeFeed changeFeed = ChangeFeed.DISABLED;
+
+    public BookService() {
+        this(DEFAULT_SEARCH_CACHE_SIZE, null);
+    }
+
+    // searchCacheSize 0 disables the search cache; a null searchCacheTtl keeps entries until evicted or invalidated
+    public BookService(int searchCacheSize, Duration searchCacheTtl) {
+        this(searchCacheSize, searchCacheTtl, true);
+    }
+
+    // compactStorage makes cataloged books share one String per distinct author and genre, taken from the facet
+    // indexes, instead of each keeping the copy it was created with. Only worth turning off to measure it.
+    public BookService(int searchCacheSize, Duration searchCacheTtl, boolean compactStorage) {
+        searchCache = new SearchCache(searchCacheSize, searchCacheTtl);
+        this.compactStorage = compactStorage;
+    }
 
     public List<Book> searchBook(String keyword) {
-        // Search book by title, author, or genre
-        return bookDatabase.stream()
-                .filter(book -> book.getTitle().contains(keyword) ||
-                        book.getAuthor().contains(keyword) ||
-                        book.getGenre().contains(keyword))
-                .collect(Collectors.toList());
+        // Search book by title, author, or genre; the list is unmodifiable and may be shared with other callers
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        List<Book> result = cachedSearch(keyword);
+        metrics.record(Metrics.Operation.SEARCH_BOOK, result.isEmpty() ? Metrics.Outcome.NO_RESULTS : Metrics.Outcome.SUCCESS, start);
+        return result;
+    }
+
+    // searchBook without the metrics, for callers that record the search themselves
+    List<Book> cachedSearch(String keyword) {
+        lock.readLock().lock();
+        try {
+            List<Book> result = searchCache.get(keyword);
+            if (result == null) {
+                if (keyword.length() < TrigramIndex.GRAM_LENGTH) {
+                    result = linearSearch(keyword); // Too short to have trigrams, fall back to the scan
+                } else {
+                    result = searchIndex.search(keyword);
+                }
+                result = Collections.unmodifiableList(result); // Shared with every later hit
+                searchCache.put(keyword, result); // Still under the read lock, so no change can slip in between
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // For ShardedBookService, which tries it before a fan-out query so a worker that would wait can say so
+    Lock readLock() {
+        return lock.readLock();
+    }
+
+    List<Book> linearSearch(String keyword) {
+        lock.readLock().lock();
+        try {
+            return bookDatabase.values().stream()
+                    .filter(book -> matches(book, keyword))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Typo-tolerant search over titles and authors: case and accents are ignored, and every word of the query
+    // must be within a few edits of some word of the book (none for words of up to 2 letters, one up to 5,
+    // two beyond), so "orwel" and "ORWELL" both find "George Orwell". Results are in catalog order.
+    public List<Book> fuzzySearchBook(String query) {
+        return fuzzySearchBook(query, FuzzyIndex.MAX_EDITS);
+    }
+
+    // Like fuzzySearchBook, but allows at most maxEdits edits per word; 0 still ignores case and accents
+    public List<Book> fuzzySearchBook(String query, int maxEdits) {
+        if (maxEdits < 0 || maxEdits > FuzzyIndex.MAX_EDITS) {
+            throw new IllegalArgumentException("maxEdits must be between 0 and " + FuzzyIndex.MAX_EDITS);
+        }
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        List<Book> result = fuzzySearch(query, maxEdits);
+        metrics.record(Metrics.Operation.FUZZY_SEARCH_BOOK, result.isEmpty() ? Metrics.Outcome.NO_RESULTS : Metrics.Outcome.SUCCESS, start);
+        return result;
+    }
+
+    // fuzzySearchBook without the argument check and the metrics
+    List<Book> fuzzySearch(String query, int maxEdits) {
+        lock.readLock().lock();
+        try {
+            return booksInCatalogOrder(fuzzyIndex.search(query, maxEdits));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The catalog as of now, frozen: searching or paging through it takes no locks and is never affected by
+    // later changes, and it stays valid for as long as the caller keeps it. Unchanged since the last call, it
+    // is the same snapshot; otherwise it is published without the catalog lock, so a burst of writes never
+    // holds it up. Every change that completed before the call is in it.
+    public CatalogSnapshot snapshot() {
+        return versions.snapshot();
+    }
+
+    public SearchCacheStats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+
+    // One page of search results, best first: title matches, then author matches, then genre matches,
+    // each group in catalog order. Only offset + limit results are ever held in memory.
+    public List<Book> searchBookRanked(String keyword, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+        int capacity = (int) Math.min((long) offset + limit, Integer.MAX_VALUE); // No more matches can exist
+        lock.readLock().lock();
+        try {
+            List<Book> top = rankedMatches(keyword, NO_CURSOR, capacity).drainSorted();
+            return offset >= top.size() ? new ArrayList<>() : new ArrayList<>(top.subList(offset, top.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Like searchBookRanked, but continues after a cursor (null for the first page) instead of skipping an
+    // offset, so deep pages cost no more than the first and concurrent changes never repeat a result
+    public SearchPage searchBookPage(String keyword, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        long afterKey = cursor == null ? NO_CURSOR : SearchPage.decodeCursor(cursor);
+        int capacity = limit == Integer.MAX_VALUE ? limit : limit + 1; // One extra to see if more follow
+        lock.readLock().lock();
+        try {
+            List<Book> books = rankedMatches(keyword, afterKey, capacity).drainSorted();
+            if (books.size() <= limit) {
+                return new SearchPage(books, null);
+            }
+            books.remove(limit);
+            return new SearchPage(books, SearchPage.encodeCursor(rankKey(books.get(limit - 1), keyword)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // All search results in ranked order, fetched lazily one page at a time as the stream is consumed
+    public Stream<Book> streamSearchBook(String keyword) {
+        Iterator<Book> iterator = new Iterator<Book>() {
+            private SearchPage page = searchBookPage(keyword, null, STREAM_PAGE_SIZE);
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == page.getBooks().size() && page.hasMore()) {
+                    page = searchBookPage(keyword, page.getNextCursor(), STREAM_PAGE_SIZE);
+                    next = 0;
+                }
+                return next < page.getBooks().size();
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.getBooks().get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    // Called with the read lock held: the best-ranked matches whose key comes after afterKey
+    private TopK rankedMatches(String keyword, long afterKey, int capacity) {
+        TopK top = new TopK(capacity);
+        Consumer<Book> offer = book -> {
+            long key = rankKey(book, keyword);
+            if (key > afterKey) {
+                top.offer(key, book);
+            }
+        };
+        if (keyword.length() < TrigramIndex.GRAM_LENGTH) {
+            for (Book book : bookDatabase.values()) {
+                if (matches(book, keyword)) {
+                    offer.accept(book);
+                }
+            }
+        } else {
+            searchIndex.forEachMatch(keyword, offer);
+        }
+        return top;
+    }
+
+    // Sort key of a match: which field matched in the top byte, catalog position below it
+    private long rankKey(Book book, String keyword) {
+        long rank = book.getTitle().contains(keyword) ? 0 : book.getAuthor().contains(keyword) ? 1 : 2;
+        return rank << 56 | searchIndex.sequenceOf(book);
+    }
+
+    // Books priced between minPrice and maxPrice (inclusive), cheapest first
+    public List<Book> findBooksByPriceRange(double minPrice, double maxPrice) {
+        lock.readLock().lock();
+        try {
+            return priceIndex.range(minPrice, maxPrice);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Book> findCheapestBooks(int count) {
+        checkCount(count);
+        lock.readLock().lock();
+        try {
+            return priceIndex.cheapest(count, book -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Book> findMostExpensiveBooks(int count) {
+        checkCount(count);
+        lock.readLock().lock();
+        try {
+            return priceIndex.mostExpensive(count, book -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Book> findCheapestBooksInGenre(String genre, int count) {
+        checkCount(count);
+        lock.readLock().lock();
+        try {
+            return priceIndex.cheapest(count, book -> book.getGenre().equals(genre));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Exact-match facets: unlike searchBook("Dystopian"), these count only books whose genre (or author) is
+    // exactly the given value, and they are answered from indexes kept up to date on every change
+    public int countBooksInGenre(String genre) {
+        lock.readLock().lock();
+        try {
+            return genreIndex.count(genre);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countBooksByAuthor(String author) {
+        lock.readLock().lock();
+        try {
+            return authorIndex.count(author);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
+    // Books whose genre is exactly the given one, in catalog order
+    public List<Book> findBooksInGenre(String genre) {
+        return facetMembers(genreIndex, genre);
+    }
+
+    // Books whose author is exactly the given one, in catalog order
+    public List<Book> findBooksByAuthor(String author) {
+        return facetMembers(authorIndex, author);
+    }
+
+    // Every genre in the catalog with its number of books, sorted by genre
+    public Map<String, Integer> getGenreCounts() {
+        lock.readLock().lock();
+        try {
+            return genreIndex.counts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every author in the catalog with its number of books, sorted by author
+    public Map<String, Integer> getAuthorCounts() {
+        lock.readLock().lock();
+        try {
+            return authorIndex.counts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Book> facetMembers(FacetIndex index, String value) {
+        lock.readLock().lock();
+        try {
+            return booksInCatalogOrder(index.members(value));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called with the lock held
+    private List<Book> booksInCatalogOrder(int[] ids) {
+        List<Book> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Book book = bookDatabase.get(id);
+            if (book != null) { // An index entry that outlived its book must not surface as a null result
+                result.add(book);
+            }
+        }
+        result.sort(Comparator.comparingLong(searchIndex::sequenceOf));
+        return result;
+    }
+
+    // Books matching the keyword (as in searchBook) and priced between minPrice and maxPrice, cheapest first
+    public List<Book> searchBook(String keyword, double minPrice, double maxPrice) {
+        lock.readLock().lock();
+        try {
+            List<Book> result;
+            if (keyword.length() >= TrigramIndex.GRAM_LENGTH
+                    && priceIndex.estimateRange(minPrice, maxPrice) > searchIndex.estimateCandidates(keyword)) {
+                result = new ArrayList<>(cachedSearch(keyword)); // The keyword is more selective than the price range
+                result.removeIf(book -> book.getPrice() < minPrice || book.getPrice() > maxPrice);
+                result.sort(PRICE_ORDER);
+            } else {
+                result = priceIndex.range(minPrice, maxPrice); // Walk the price range and check the keyword
+                result.removeIf(book -> !matches(book, keyword));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The cheapest books matching the keyword (as in searchBook)
+    public List<Book> searchCheapestBooks(String keyword, int count) {
+        checkCount(count);
+        List<Book> result = new ArrayList<>(cachedSearch(keyword));
+        result.sort(PRICE_ORDER);
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    // The most expensive books matching the keyword (as in searchBook)
+    public List<Book> searchMostExpensiveBooks(String keyword, int count) {
+        checkCount(count);
+        List<Book> result = new ArrayList<>(cachedSearch(keyword));
+        result.sort(PRICE_ORDER.reversed());
+        return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+    }
+
+    static void checkCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+    }
+
+    static boolean matches(Book book, String keyword) {
+        return book.getTitle().contains(keyword) ||
+                book.getAuthor().contains(keyword) ||
+                book.getGenre().contains(keyword);
+    }
+
+    // Takes a copy from stock, debits the book's price from the user's balance and records ownership, all or
+    // nothing: if any step fails, the steps before it are undone. Fails when the book is not cataloged, out
+    // of stock or costs more than the user's balance.
     public boolean purchaseBook(User user, Book book) {
-        // In real world, this should check user's balance, availability of the book, and then make a transaction
-        // But for now, we just check if the book exists in our "database"
-        return bookDatabase.contains(book);
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Metrics.Outcome outcome = purchase(user, book);
+        metrics.record(Metrics.Operation.PURCHASE_BOOK, outcome, start);
+        return outcome == Metrics.Outcome.SUCCESS;
+    }
+
+    private Metrics.Outcome purchase(User user, Book book) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation(); // Checkpoints wait for the whole transaction, so they never see half of it
+        try {
+            lock.readLock().lock(); // Concurrent purchases only touch CAS fields, so the read lock is enough
+            try {
+                if (!contains(book)) {
+                    return Metrics.Outcome.BOOK_NOT_FOUND; // Book is not in the database
+                }
+                if (!book.reserveCopy()) {
+                    return Metrics.Outcome.OUT_OF_STOCK;
+                }
+                long priceCents = toCents(book.getPrice()); // Read once, so the debit and the log agree
+                if (!user.debit(priceCents)) {
+                    book.releaseCopy();
+                    return Metrics.Outcome.INSUFFICIENT_FUNDS;
+                }
+                int before = user.getPurchasedBooks().size();
+                try {
+                    user.getPurchasedBooks().add(book);
+                    lsn = journal.append(Mutation.purchase(user, book, priceCents));
+                } catch (RuntimeException e) {
+                    user.getPurchasedBooks().remove(book);
+                    user.credit(priceCents);
+                    book.releaseCopy();
+                    throw e;
+                }
+                recordCoPurchases(user.getPurchasedBooks(), before);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+        return Metrics.Outcome.SUCCESS;
+    }
+
+    // Buys a whole cart as one purchase: every book must be cataloged and in stock and the user must afford
+    // the total, or nothing is bought. The user's history is updated once and the journal gets one record, so
+    // a cart costs one durable write however many books it holds. Buying a book twice takes two copies.
+    public boolean purchaseBooks(User user, Collection<Book> books) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Metrics.Outcome outcome = purchase(user, new ArrayList<>(books)); // Copied, so the cart cannot change midway
+        metrics.record(Metrics.Operation.PURCHASE_BOOKS, outcome, start);
+        return outcome == Metrics.Outcome.SUCCESS;
+    }
+
+    private Metrics.Outcome purchase(User user, List<Book> books) {
+        if (books.isEmpty()) {
+            return Metrics.Outcome.SUCCESS; // Nothing to buy, nothing to log
+        }
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            lock.readLock().lock();
+            try {
+                long totalCents = 0;
+                for (Book book : books) {
+                    if (!contains(book)) {
+                        return Metrics.Outcome.BOOK_NOT_FOUND; // Checked for the whole cart before taking any stock
+                    }
+                    totalCents += toCents(book.getPrice());
+                }
+                int reserved = 0;
+                while (reserved < books.size() && books.get(reserved).reserveCopy()) {
+                    reserved++;
+                }
+                if (reserved < books.size()) {
+                    releaseCopies(books, reserved);
+                    return Metrics.Outcome.OUT_OF_STOCK;
+                }
+                if (!user.debit(totalCents)) {
+                    releaseCopies(books, reserved);
+                    return Metrics.Outcome.INSUFFICIENT_FUNDS;
+                }
+                int before = user.getPurchasedBooks().size();
+                try {
+                    user.getPurchasedBooks().addAll(books);
+                    lsn = journal.append(Mutation.purchase(user, books, totalCents));
+                } catch (RuntimeException e) {
+                    for (int i = books.size() - 1; i >= 0; i--) {
+                        user.getPurchasedBooks().remove(books.get(i));
+                    }
+                    user.credit(totalCents);
+                    releaseCopies(books, reserved);
+                    throw e;
+                }
+                recordCoPurchases(user.getPurchasedBooks(), before);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+        return Metrics.Outcome.SUCCESS;
+    }
+
+    // "Customers who bought this also bought": up to count cataloged books most often bought by the customers
+    // who bought this one, most often first. Read from a short list that every purchase keeps up to date, so it
+    // costs the same however many users and purchases there are; at most 10 books are kept per book.
+    public List<Book> getRecommendations(Book book, int count) {
+        checkCount(count);
+        List<Book> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!contains(book)) {
+                return result;
+            }
+            for (int id : coPurchases.top(book.getId())) {
+                Book neighbor = bookDatabase.get(id);
+                if (neighbor == null) {
+                    coPurchases.forget(book.getId(), id); // Removed after its own counts had dropped this book
+                } else if (result.size() < count) {
+                    result.add(neighbor);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rebuilds the co-purchase counts from the users' purchase histories, as if each purchase had just happened
+    void rebuildRecommendations(Collection<User> users) {
+        lock.readLock().lock();
+        try {
+            coPurchases.clear();
+            for (User user : users) {
+                recordCoPurchases(user.getPurchasedBooks(), 0);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Counts history[from..] against the purchases before them. Called with the lock held; books no longer
+    // cataloged are left out, and so is all but the last window of older purchases.
+    private void recordCoPurchases(List<Book> history, int from) {
+        int[] ids;
+        int length = 0;
+        int kept = 0;
+        synchronized (history) {
+            int start = Math.max(0, from - CoPurchaseIndex.WINDOW);
+            ids = new int[history.size() - start];
+            for (int i = start; i < start + ids.length; i++) {
+                Book book = history.get(i);
+                if (contains(book)) {
+                    ids[length++] = book.getId();
+                    if (i < from) {
+                        kept++;
+                    }
+                }
+            }
+        }
+        coPurchases.record(ids, length, kept);
+    }
+
+    private static void releaseCopies(List<Book> books, int count) {
+        for (int i = 0; i < count; i++) {
+            books.get(i).releaseCopy();
+        }
+    }
+
+    static long toCents(double price) {
+        return Math.round(price * 100);
     }
 
     public boolean addBookReview(User user, Book book, String review) {
         // logic to add book review
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
         if (!user.getPurchasedBooks().contains(book)) {
+            metrics.record(Metrics.Operation.ADD_BOOK_REVIEW, Metrics.Outcome.NOT_PURCHASED, start);
             return false; // User has not purchased this book
         }
 
-        book.getReviews().add(review);
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            book.addReview(review); // Locks only this book's review log
+            lsn = changeFeed.reviewAdded(journal, Mutation.addReview(user, book, review), user, book, review);
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+        metrics.record(Metrics.Operation.ADD_BOOK_REVIEW, Metrics.Outcome.SUCCESS, start);
         return true; // Review added successfully
     }
 
+    // Kept incrementally by the book's review log, so this never counts
+    public int getReviewCount(Book book) {
+        ReviewLog log = book.reviewLog();
+        return log == null ? 0 : log.size();
+    }
+
+    // One page of the book's reviews, newest first; pass a null cursor for the first page
+    public ReviewPage getReviewPage(Book book, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        ReviewLog log = book.reviewLog();
+        int count = log == null ? 0 : log.size();
+        int end = cursor == null ? count : Math.min(count, ReviewPage.decodeCursor(cursor)); // Exclusive
+        int start = Math.max(0, end - limit);
+        List<String> reviews = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            reviews.add(log.get(i));
+        }
+        return new ReviewPage(reviews, count, start > 0 ? ReviewPage.encodeCursor(start) : null);
+    }
+
+    // All of the book's reviews at the time of the call, newest first, read lazily from its review log
+    public Stream<String> streamReviews(Book book) {
+        ReviewLog log = book.reviewLog();
+        if (log == null) {
+            return Stream.empty();
+        }
+        int count = log.size();
+        return IntStream.range(0, count).mapToObj(i -> log.get(count - 1 - i));
+    }
+
     public boolean addBook(Book book) {
-        if (bookDatabase.contains(book)) {
-            return false; // Book is already in the database
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
         }
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (contains(book)) {
+                    return false; // Book is already in the database
+                }
 
-        bookDatabase.add(book);
+                bookDatabase.put(book.assignId(), book);
+                searchIndex.add(book);
+                searchCache.invalidate(book.getTitle(), book.getAuthor(), book.getGenre());
+                priceIndex.add(book);
+                addToFacets(book);
+                if (equivalents != null) {
+                    equivalents.add(book);
+                }
+                fuzzyIndex.add(book);
+                versions.add(book);
+                book.addChangeListener(indexUpdater);
+                lsn = changeFeed.bookAdded(journal, Mutation.addBook(book), book);
+                if (book.getStock() != Book.UNLIMITED_STOCK) {
+                    lsn = journal.append(Mutation.setStock(book));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
         return true; // Book added successfully
     }
 
+    // Adds every book not already cataloged under one lock acquisition and one durable wait, and returns the
+    // ones that were added. Results are the same as calling addBook for each book in order.
+    public List<Book> addBooks(Collection<Book> books) {
+        return addBooks(books, false);
+    }
+
+    // With skipEquivalent, a book is also skipped if the catalog (or an earlier book in the batch) already
+    // has one with the same title, author, genre and price; the bulk importer uses that to dedupe feeds
+    List<Book> addBooks(Collection<Book> books, boolean skipEquivalent) {
+        for (Book book : books) {
+            if (book == null) {
+                throw new IllegalArgumentException("Book cannot be null");
+            }
+        }
+        List<Book> added = new ArrayList<>(books.size());
+        Journal journal = this.journal;
+        long lsn = 0;
+        journal.beginMutation();
+        try {
+            lock.writeLock().lock();
+            try {
+                for (Book book : books) {
+                    if (contains(book) || (skipEquivalent && hasEquivalent(book))) {
+                        continue;
+                    }
+                    bookDatabase.put(book.assignId(), book);
+                    searchIndex.add(book);
+                    priceIndex.add(book);
+                    addToFacets(book);
+                    if (equivalents != null) {
+                        equivalents.add(book);
+                    }
+                    fuzzyIndex.add(book);
+                    versions.add(book);
+                    book.addChangeListener(indexUpdater);
+                    lsn = changeFeed.bookAdded(journal, Mutation.addBook(book), book);
+                    if (book.getStock() != Book.UNLIMITED_STOCK) {
+                        lsn = journal.append(Mutation.setStock(book));
+                    }
+                    added.add(book);
+                }
+                if (!added.isEmpty()) {
+                    searchCache.invalidateAll(); // Cheaper than matching every cached keyword against every book
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        if (!added.isEmpty()) {
+            journal.awaitDurable(lsn); // The last record covers the whole batch
+        }
+        return added;
+    }
+
+    // Called with the write lock held. One hash lookup per book; the index is built from the catalog the first
+    // time, so catalogs that never import pay nothing for it, and kept up to date from then on.
+    private boolean hasEquivalent(Book book) {
+        if (equivalents == null) {
+            equivalents = new EquivalenceIndex();
+            bookDatabase.values().forEach(equivalents::add);
+        }
+        return equivalents.contains(book);
+    }
+
     public boolean removeBook(Book book) {
-        return bookDatabase.remove(book); // Book removed successfully if it was in the database
+        if (book == null) {
+            return false;
+        }
+        // Setters hold the book's monitor from writing a field until every catalog has reindexed it. Holding it
+        // here too means the fields read below are the ones indexed, never a new value whose update is pending.
+        synchronized (book) {
+            return removeIndexed(book);
+        }
+    }
+
+    private boolean removeIndexed(Book book) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (!contains(book)) {
+                    return false; // Book was not in the database
+                }
+
+                bookDatabase.remove(book.getId());
+                book.removeChangeListener(indexUpdater);
+                searchIndex.remove(book);
+                searchCache.invalidate(book.getTitle(), book.getAuthor(), book.getGenre());
+                priceIndex.remove(book);
+                genreIndex.remove(book);
+                authorIndex.remove(book);
+                fuzzyIndex.remove(book);
+                if (equivalents != null) {
+                    equivalents.remove(book);
+                }
+                versions.remove(book);
+                coPurchases.remove(book.getId());
+                lsn = changeFeed.bookRemoved(journal, Mutation.removeBook(book), book);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+        return true; // Book removed successfully
+    }
+
+    public Book getBook(int id) {
+        lock.readLock().lock();
+        try {
+            return bookDatabase.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getBookCount() {
+        lock.readLock().lock();
+        try {
+            return bookDatabase.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copy of the catalog, in insertion order, for checkpoints
+    List<Book> books() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(bookDatabase.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Starts recording latencies and outcomes into metrics; pass Metrics.DISABLED to stop
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Starts publishing book additions, removals and reviews to feed; pass ChangeFeed.DISABLED to stop
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // Called with the write lock held
+    private void addToFacets(Book book) {
+        String genre = genreIndex.add(book);
+        String author = authorIndex.add(book);
+        if (compactStorage) {
+            book.shareStrings(author, genre);
+        }
+    }
+
+    private boolean contains(Book book) {
+        // IDs are unique per Book object, so this is the same identity check List.contains did, in constant time
+        return book != null && book.getId() != 0 && bookDatabase.get(book.getId()) == book;
+    }
+
+    private void bookChanged(Book book, Book.Field field, Object oldValue) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            lock.writeLock().lock();
+            try {
+                if (!contains(book)) {
+                    return; // Ignore a change that raced with removeBook
+                }
+                boolean indexed = field != Book.Field.STOCK && field != Book.Field.REVIEWS;
+                if (equivalents != null && indexed) {
+                    equivalents.update(book, field, oldValue);
+                }
+                if (field == Book.Field.PRICE) {
+                    priceIndex.update(book);
+                } else if (indexed) {
+                    searchIndex.update(book, field, oldValue);
+                    if (field == Book.Field.GENRE) {
+                        String genre = genreIndex.update(book, (String) oldValue);
+                        if (compactStorage) {
+                            book.shareStrings(book.getAuthor(), genre);
+                        }
+                    } else if (field == Book.Field.AUTHOR) {
+                        String author = authorIndex.update(book, (String) oldValue);
+                        if (compactStorage) {
+                            book.shareStrings(author, book.getGenre());
+                        }
+                    }
+                    fuzzyIndex.update(book, field, oldValue);
+                    versions.update(book);
+                    // Results the book used to be in and results it now belongs to are both stale
+                    searchCache.invalidate(field == Book.Field.TITLE ? (String) oldValue : book.getTitle(),
+                            field == Book.Field.AUTHOR ? (String) oldValue : book.getAuthor(),
+                            field == Book.Field.GENRE ? (String) oldValue : book.getGenre());
+                    searchCache.invalidate(book.getTitle(), book.getAuthor(), book.getGenre());
+                }
+                if (field == Book.Field.STOCK) {
+                    lsn = journal.append(Mutation.setStock(book));
+                } else if (field == Book.Field.REVIEWS) {
+                    lsn = journal.append(Mutation.setReviews(book));
+                } else {
+                    lsn = changeFeed.bookUpdated(journal, Mutation.updateBook(book), book);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
     }
 }
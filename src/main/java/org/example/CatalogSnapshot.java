@@ -0,0 +1,142 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// An immutable, versioned view of a catalog: its books in catalog order, each with the title, author and
+// genre it had at that version. Searches on a snapshot take no locks and never see later changes, so
+// holding on to one pins it: pages fetched from it stay consistent however the catalog changes meanwhile.
+// Snapshots are cut into fixed-size chunks that consecutive versions share, and keyword searches go through
+// a trigram index of the snapshot's own entries; see CatalogVersions and SnapshotIndex.
+public final class CatalogSnapshot {
+    static final int CHUNK_SIZE = 1024;
+
+    private final long version;
+    private final Entry[][] chunks; // Null entries are books removed before this version
+    private final int length; // Slots in use, including removed ones
+    private final int size;
+    private final SnapshotIndex index;
+
+    // A book and its searchable fields as of one version; shared by every snapshot it has not changed in
+    static final class Entry {
+        final Book book;
+        final String title;
+        final String author;
+        final String genre;
+
+        Entry(Book book) {
+            this.book = book;
+            this.title = book.getTitle();
+            this.author = book.getAuthor();
+            this.genre = book.getGenre();
+        }
+
+        boolean matches(String keyword) {
+            return title.contains(keyword) || author.contains(keyword) || genre.contains(keyword);
+        }
+    }
+
+    CatalogSnapshot(long version, Entry[][] chunks, int length, int size, SnapshotIndex index) {
+        this.version = version;
+        this.chunks = chunks;
+        this.length = length;
+        this.size = size;
+        this.index = index;
+    }
+
+    // The same version with its index, once that is built
+    CatalogSnapshot withIndex(SnapshotIndex index) {
+        return new CatalogSnapshot(version, chunks, length, size, index);
+    }
+
+    // Number of catalog changes applied before this snapshot; a later snapshot always has a higher version
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<Book> getBooks() {
+        List<Book> books = new ArrayList<>(size);
+        for (int slot = 0; slot < length; slot++) {
+            Entry entry = entry(slot);
+            if (entry != null) {
+                books.add(entry.book);
+            }
+        }
+        return books;
+    }
+
+    // Same matching as BookService.searchBook, against the fields as of this version, in catalog order
+    public List<Book> searchBook(String keyword) {
+        int[] slots = matchingSlots(keyword);
+        List<Book> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            result.add(entry(slot).book);
+        }
+        return result;
+    }
+
+    // Ranked like BookService.searchBookPage (title matches, then author, then genre). Cursors belong to the
+    // snapshot that issued them: continuing on the same snapshot never repeats or skips a result.
+    public SearchPage searchBookPage(String keyword, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        long afterKey = cursor == null ? -1 : SearchPage.decodeCursor(cursor);
+        TopK top = new TopK(limit);
+        int remaining = 0; // Matches after the cursor, to tell whether another page follows
+        for (int slot : matchingSlots(keyword)) {
+            Entry entry = entry(slot);
+            long key = rankKey(entry, slot, keyword);
+            if (key > afterKey) {
+                top.offer(key, entry.book);
+                remaining++;
+            }
+        }
+        String nextCursor = remaining > limit ? SearchPage.encodeCursor(top.largestKey()) : null;
+        return new SearchPage(top.drainSorted(), nextCursor);
+    }
+
+    Entry entry(int slot) {
+        return chunks[slot / CHUNK_SIZE][slot % CHUNK_SIZE];
+    }
+
+    int length() {
+        return length;
+    }
+
+    SnapshotIndex index() {
+        return index;
+    }
+
+    // Slots whose entry contains the keyword, ascending. Keywords too short to have trigrams scan the snapshot,
+    // as BookService.searchBook scans the catalog for them.
+    private int[] matchingSlots(String keyword) {
+        int[] candidates;
+        if (keyword.length() < TrigramIndex.GRAM_LENGTH) {
+            candidates = new int[length];
+            for (int slot = 0; slot < length; slot++) {
+                candidates[slot] = slot;
+            }
+        } else {
+            candidates = index.candidates(keyword);
+        }
+        int count = 0;
+        for (int slot : candidates) {
+            Entry entry = entry(slot);
+            if (entry != null && entry.matches(keyword)) {
+                candidates[count++] = slot; // In place: the index never hands out its own arrays
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private static long rankKey(Entry entry, int slot, String keyword) {
+        long rank = entry.title.contains(keyword) ? 0 : entry.author.contains(keyword) ? 1 : 2;
+        return rank << 56 | slot;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Publishes CatalogSnapshots of a BookService. Writers record each change in a working copy of the chunks,
+// in place; publishing freezes the working copy into a new version and marks every chunk shared, so the next
+// write to a chunk copies that one chunk (CHUNK_SIZE references) first. A version therefore costs one copy of
+// the chunk table plus the chunks written since the last version, and a burst of writes with no reader in
+// between costs no copies at all. Each version also gets a SnapshotIndex that reindexes only the slots
+// written since the version before. Writers and the freeze share this object's monitor, held for one entry
+// or one table copy at a time, never for a whole catalog operation; the reindexing runs outside it.
+final class CatalogVersions {
+    private static final int CHUNK_SIZE = CatalogSnapshot.CHUNK_SIZE;
+
+    private CatalogSnapshot.Entry[][] chunks = new CatalogSnapshot.Entry[0][];
+    private boolean[] shared = new boolean[0]; // Chunks the last published snapshot also refers to
+    private final IntIntHashMap slots = new IntIntHashMap(); // Book ID -> slot
+    private int length;
+    private int size;
+    private long version;
+    // Slots written since the last version, unless reindexAll: until the first version, after a compaction
+    // moved every slot, or once so many changed that indexing them one by one would cost more
+    private final IntHashSet changedSlots = new IntHashSet();
+    private boolean reindexAll = true;
+    private volatile boolean dirty;
+    private volatile CatalogSnapshot published = new CatalogSnapshot(0, chunks, 0, 0, SnapshotIndex.EMPTY);
+    private final Object publishLock = new Object(); // One publisher at a time; writers never take it
+
+    // Writers: called with the service's write lock held
+
+    synchronized void add(Book book) {
+        if (length == chunks.length * CHUNK_SIZE) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = new CatalogSnapshot.Entry[CHUNK_SIZE];
+            shared = Arrays.copyOf(shared, chunks.length);
+        }
+        slots.put(book.getId(), length);
+        write(length++, new CatalogSnapshot.Entry(book));
+        size++;
+        changed();
+    }
+
+    synchronized void update(Book book) {
+        int slot = slots.get(book.getId(), -1);
+        if (slot >= 0) {
+            write(slot, new CatalogSnapshot.Entry(book));
+            changed();
+        }
+    }
+
+    synchronized void remove(Book book) {
+        int slot = slots.get(book.getId(), -1);
+        if (slot < 0) {
+            return;
+        }
+        slots.remove(book.getId());
+        write(slot, null);
+        size--;
+        changed();
+        if (length - size > Math.max(CHUNK_SIZE, size)) {
+            compact(); // Mostly holes: keep scans proportional to the live books
+        }
+    }
+
+    // Readers
+
+    // The current version, publishing one first if anything changed since the last. Takes no lock when
+    // nothing did; otherwise waits only for a publish already under way, never for a catalog operation.
+    CatalogSnapshot snapshot() {
+        if (!dirty) {
+            return published;
+        }
+        synchronized (publishLock) {
+            if (!dirty) {
+                return published; // Another reader published it meanwhile
+            }
+            CatalogSnapshot frozen;
+            int[] changed;
+            SnapshotIndex base;
+            synchronized (this) {
+                frozen = new CatalogSnapshot(version, chunks.clone(), length, size, null);
+                Arrays.fill(shared, true);
+                base = reindexAll ? null : published.index();
+                changed = reindexAll ? null : changedSlots.toArray();
+                changedSlots.clear();
+                reindexAll = false;
+            }
+            SnapshotIndex index;
+            if (base == null) {
+                index = SnapshotIndex.build(frozen);
+            } else {
+                Arrays.sort(changed);
+                index = base.with(changed, frozen);
+            }
+            published = frozen.withIndex(index);
+            synchronized (this) {
+                dirty = version != published.getVersion(); // Writes made while indexing wait for the next one
+            }
+            return published;
+        }
+    }
+
+    private void write(int slot, CatalogSnapshot.Entry entry) {
+        int chunk = slot / CHUNK_SIZE;
+        if (shared[chunk]) {
+            chunks[chunk] = chunks[chunk].clone(); // Copy on the first write since the last version
+            shared[chunk] = false;
+        }
+        chunks[chunk][slot % CHUNK_SIZE] = entry;
+        if (!reindexAll) {
+            changedSlots.add(slot);
+            if (changedSlots.size() > Math.max(CHUNK_SIZE, size / 2)) {
+                changedSlots.clear();
+                reindexAll = true;
+            }
+        }
+    }
+
+    private void changed() {
+        version++;
+        dirty = true;
+    }
+
+    // Moves the live entries to the front of fresh chunks; published snapshots keep the old ones
+    private void compact() {
+        CatalogSnapshot.Entry[][] old = chunks;
+        int oldLength = length;
+        chunks = new CatalogSnapshot.Entry[(size + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new CatalogSnapshot.Entry[CHUNK_SIZE];
+        }
+        shared = new boolean[chunks.length];
+        slots.clear();
+        length = 0;
+        for (int slot = 0; slot < oldLength; slot++) {
+            CatalogSnapshot.Entry entry = old[slot / CHUNK_SIZE][slot % CHUNK_SIZE];
+            if (entry != null) {
+                slots.put(entry.book.getId(), length);
+                chunks[length / CHUNK_SIZE][length % CHUNK_SIZE] = entry;
+                length++;
+            }
+        }
+        changedSlots.clear();
+        reindexAll = true; // Every slot moved
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+// One change to the catalog or the user base, as delivered by a ChangeSubscription. Events are slots that get
+// reused: read what you need inside ChangeSubscriber.onEvent and copy it if you keep it longer.
+public final class ChangeEvent {
+    public enum Type { BOOK_ADDED, BOOK_REMOVED, REVIEW_ADDED, USER_REGISTERED, USER_UPDATED, BOOK_UPDATED }
+
+    // Written by ChangeFeed; plain fields, ordered by the feed's per-slot sequence
+    long sequence;
+    Type type;
+    int bookId;
+    String title;
+    String author;
+    String genre;
+    double price;
+    String username;
+    String previousUsername;
+    String review;
+
+    ChangeEvent() {
+    }
+
+    void copyFrom(ChangeEvent other) {
+        sequence = other.sequence;
+        type = other.type;
+        bookId = other.bookId;
+        title = other.title;
+        author = other.author;
+        genre = other.genre;
+        price = other.price;
+        username = other.username;
+        previousUsername = other.previousUsername;
+        review = other.review;
+    }
+
+    // Position in the feed: consecutive for consecutive events, so a gap means events were dropped
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The book added, removed, updated or reviewed; 0 for user events
+    public int getBookId() {
+        return bookId;
+    }
+
+    // The book's fields when it was added or removed, or as they are after an update; null for other events
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    // The user registered, updated or reviewing, by the name they have after the change; null for book events
+    public String getUsername() {
+        return username;
+    }
+
+    // The name before a USER_UPDATED; null for other events
+    public String getPreviousUsername() {
+        return previousUsername;
+    }
+
+    // The text of a REVIEW_ADDED; null for other events
+    public String getReview() {
+        return review;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + (bookId != 0 ? " book " + bookId : "") + (username != null ? " user " + username : "");
+    }
+}
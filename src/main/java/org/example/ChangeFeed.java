@@ -0,0 +1,168 @@
+package org.example;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// In-process stream of catalog and user changes for replicas, analytics or cache warmers. Events go into a
+// ring of slots allocated up front: a writer claims the next sequence with one atomic increment, fills the
+// slot in place and marks it published, so publishing allocates nothing and never waits for a subscriber.
+// The journal draws that sequence in the same step as it hands out the change's LSN, so sequences follow the
+// journal order without a lock of the feed's own; subscribers wait at a sequence whose writer is still filling
+// its slot, so they see events in that order too.
+// Subscribers pull at their own pace (see ChangeSubscription), which is their backpressure: nothing is pushed
+// at them, and a subscriber that falls more than the capacity behind loses the oldest events, counted in
+// getDropped(), rather than slowing the writers down. Attach with BookService/UserService.setChangeFeed.
+public final class ChangeFeed {
+    public static final ChangeFeed DISABLED = new ChangeFeed(0, false);
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // What read() found in a slot
+    static final int AVAILABLE = 0;
+    static final int NOT_YET = 1;
+    static final int OVERWRITTEN = 2;
+
+    private final ChangeEvent[] slots;
+    private final int mask;
+    // Per slot, 2 * sequence while a writer fills it and 2 * sequence + 1 once it is published
+    private final AtomicLongArray states;
+    private final AtomicLong claimed = new AtomicLong(); // Next sequence to hand out
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // capacity is rounded up to a power of two
+    public ChangeFeed(int capacity) {
+        this(roundUpToPowerOfTwo(capacity), true);
+    }
+
+    private ChangeFeed(int size, boolean enabled) {
+        if (!enabled) {
+            size = 0;
+        }
+        slots = new ChangeEvent[size];
+        states = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ChangeEvent();
+            states.set(i, 2L * (i - size) + 1); // As if a lap before the first had been published
+        }
+        mask = size - 1; // -1 when disabled
+    }
+
+    private static int roundUpToPowerOfTwo(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        return size < capacity ? size << 1 : size;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    // Number of events published so far
+    public long getPublishedCount() {
+        return claimed.get();
+    }
+
+    // Starts a subscription at the next event to be published
+    public ChangeSubscription subscribe() {
+        return new ChangeSubscription(this, claimed.get());
+    }
+
+    // Called by the services in place of journal.append while their own locks are held. Each appends the
+    // change's mutation and publishes its event under the sequence drawn with its LSN.
+    long bookAdded(Journal journal, Mutation mutation, Book book) {
+        return append(journal, mutation, ChangeEvent.Type.BOOK_ADDED, book, book.getId(), null, null, null);
+    }
+
+    long bookRemoved(Journal journal, Mutation mutation, Book book) {
+        return append(journal, mutation, ChangeEvent.Type.BOOK_REMOVED, book, book.getId(), null, null, null);
+    }
+
+    long bookUpdated(Journal journal, Mutation mutation, Book book) {
+        return append(journal, mutation, ChangeEvent.Type.BOOK_UPDATED, book, book.getId(), null, null, null);
+    }
+
+    long reviewAdded(Journal journal, Mutation mutation, User user, Book book, String review) {
+        return append(journal, mutation, ChangeEvent.Type.REVIEW_ADDED, null, book.getId(), user.getUsername(),
+                null, review);
+    }
+
+    long userRegistered(Journal journal, Mutation mutation, User user) {
+        return append(journal, mutation, ChangeEvent.Type.USER_REGISTERED, null, 0, user.getUsername(), null,
+                null);
+    }
+
+    long userUpdated(Journal journal, Mutation mutation, String previousUsername, User user) {
+        return append(journal, mutation, ChangeEvent.Type.USER_UPDATED, null, 0, user.getUsername(),
+                previousUsername, null);
+    }
+
+    private long append(Journal journal, Mutation mutation, ChangeEvent.Type type, Book book, int bookId,
+                        String username, String previousUsername, String review) {
+        if (mask < 0) {
+            return journal.append(mutation); // DISABLED: no sequence to draw
+        }
+        long lsn = journal.append(mutation, claimed);
+        publish(mutation.sequence, type, book, bookId, username, previousUsername, review);
+        return lsn;
+    }
+
+    // book, when given, supplies the title, author, genre and price of a book event
+    private void publish(long sequence, ChangeEvent.Type type, Book book, int bookId, String username,
+                         String previousUsername, String review) {
+        claim(sequence);
+        ChangeEvent slot = slots[(int) sequence & mask];
+        slot.sequence = sequence;
+        slot.type = type;
+        slot.bookId = bookId;
+        slot.title = book != null ? book.getTitle() : null;
+        slot.author = book != null ? book.getAuthor() : null;
+        slot.genre = book != null ? book.getGenre() : null;
+        slot.price = book != null ? book.getPrice() : 0;
+        slot.username = username;
+        slot.previousUsername = previousUsername;
+        slot.review = review;
+        states.set((int) sequence & mask, 2 * sequence + 1); // Publishes the fields written before it
+    }
+
+    // Waits until the sequence's slot is free of the writer a lap earlier and marks it busy. That writer drew
+    // its sequence a whole ring of events ago, so this only spins if it was descheduled mid-write.
+    private void claim(long sequence) {
+        int index = (int) sequence & mask;
+        long previous = 2 * (sequence - slots.length) + 1;
+        while (states.get(index) != previous) {
+            Thread.onSpinWait();
+        }
+        states.set(index, 2 * sequence);
+        VarHandle.storeStoreFence(); // Readers that see the new fields also see the slot marked busy
+    }
+
+    // Copies the event with the given sequence into target. A seqlock read: the copy only counts if the slot
+    // still holds the same published event afterwards, since writers never wait for readers.
+    int read(long sequence, ChangeEvent target) {
+        if (mask < 0) {
+            return NOT_YET; // DISABLED never publishes
+        }
+        int index = (int) sequence & mask;
+        long state = states.get(index);
+        long published = 2 * sequence + 1;
+        if (state < published) {
+            return NOT_YET;
+        }
+        if (state > published) {
+            return OVERWRITTEN;
+        }
+        target.copyFrom(slots[index]);
+        VarHandle.loadLoadFence(); // Finish reading the fields before checking they were not overwritten
+        return states.get(index) == published ? AVAILABLE : OVERWRITTEN;
+    }
+
+    // The oldest sequence that can still be read
+    long oldestRetained() {
+        return Math.max(0, claimed.get() - slots.length);
+    }
+}
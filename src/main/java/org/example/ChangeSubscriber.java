@@ -0,0 +1,11 @@
+package org.example;
+
+// Receives events from ChangeSubscription.poll, on the polling thread, in feed order
+public interface ChangeSubscriber {
+    // The event is only valid during the call; it is reused for the next one
+    void onEvent(ChangeEvent event);
+
+    // Called once at the end of every poll that delivered events, so a subscriber can flush what it batched
+    default void onBatchEnd() {
+    }
+}
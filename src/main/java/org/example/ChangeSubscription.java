@@ -0,0 +1,54 @@
+package org.example;
+
+// One subscriber's position in a ChangeFeed. Each poll hands over at most the events asked for, so the
+// subscriber sets its own pace; events it has not polled wait in the ring until writers lap it. Not
+// thread-safe: poll from one thread at a time.
+public final class ChangeSubscription {
+    private final ChangeFeed feed;
+    private final ChangeEvent event = new ChangeEvent(); // Reused for every delivery
+    private long next;
+    private long dropped;
+
+    ChangeSubscription(ChangeFeed feed, long next) {
+        this.feed = feed;
+        this.next = next;
+    }
+
+    // Delivers up to maxEvents published events, oldest first, then calls onBatchEnd if any were delivered.
+    // Returns the number delivered; 0 when the subscriber is caught up.
+    public int poll(ChangeSubscriber subscriber, int maxEvents) {
+        if (maxEvents < 1) {
+            throw new IllegalArgumentException("maxEvents must be positive");
+        }
+        int delivered = 0;
+        while (delivered < maxEvents) {
+            int status = feed.read(next, event);
+            if (status == ChangeFeed.NOT_YET) {
+                break;
+            }
+            if (status == ChangeFeed.OVERWRITTEN) {
+                long oldest = Math.max(next + 1, feed.oldestRetained()); // Skip to what the ring still holds
+                dropped += oldest - next;
+                next = oldest;
+                continue;
+            }
+            next++;
+            delivered++;
+            subscriber.onEvent(event);
+        }
+        if (delivered > 0) {
+            subscriber.onBatchEnd();
+        }
+        return delivered;
+    }
+
+    // Events lost because the writers lapped this subscriber; resync from the services if it grows
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Events published but not yet polled, including any about to be dropped
+    public long getLag() {
+        return Math.max(0, feed.getPublishedCount() - next);
+    }
+}
@@ -0,0 +1,267 @@
+package org.example;
+
+import java.util.Arrays;
+
+// "Customers who bought this also bought": for every book, how often each other book was bought by the same
+// customer, counted as purchases happen so that no lookup ever scans users. A purchase is paired, both ways
+// round, with the buyer's last WINDOW purchases before it, earlier books of the same cart included. Counts
+// sit in one primitive map per book, capped at MAX_COUNTED neighbors by dropping the lowest counts, and each
+// book keeps its TOP_SIZE most co-purchased neighbors in order, so a lookup copies that list and nothing else.
+// Rows are spread over STRIPES stripes by book ID, each guarded by its own monitor. A purchase updates the
+// buyer's new book under one stripe and each neighbor's row under that neighbor's, holding one monitor at a
+// time, so concurrent purchases only wait for each other when they touch the same stripe at the same moment.
+// A lookup may see a purchase that is still being counted half applied.
+final class CoPurchaseIndex {
+    static final int TOP_SIZE = 10;
+    static final int WINDOW = 32;
+    static final int MAX_COUNTED = 256;
+    private static final int STRIPES = 64; // A power of two
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    CoPurchaseIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // The rows of the books that hash to one stripe; every method is called holding the stripe's monitor
+    private static final class Stripe {
+        private final IntIntHashMap rowOf = new IntIntHashMap(); // Book ID -> index in rows
+        private Row[] rows = new Row[16];
+        private int rowCount; // Slots handed out, including freed ones
+        private int[] freeSlots = new int[16];
+        private int freeCount;
+
+        Row row(int bookId) {
+            int slot = rowOf.get(bookId, -1);
+            if (slot < 0) {
+                if (freeCount > 0) {
+                    slot = freeSlots[--freeCount];
+                } else {
+                    if (rowCount == rows.length) {
+                        rows = Arrays.copyOf(rows, rowCount * 2);
+                    }
+                    slot = rowCount++;
+                }
+                rows[slot] = new Row();
+                rowOf.put(bookId, slot);
+            }
+            return rows[slot];
+        }
+
+        // Null if the book was never counted
+        Row existing(int bookId) {
+            int slot = rowOf.get(bookId, -1);
+            return slot < 0 ? null : rows[slot];
+        }
+
+        void remove(int bookId) {
+            int slot = rowOf.get(bookId, -1);
+            if (slot < 0) {
+                return;
+            }
+            rowOf.remove(bookId);
+            rows[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        void clear() {
+            rowOf.clear();
+            rows = new Row[16];
+            rowCount = 0;
+            freeCount = 0;
+        }
+    }
+
+    // One book's co-purchase counts and its best neighbors, highest count first
+    private static final class Row {
+        final IntIntHashMap counts = new IntIntHashMap();
+        final int[] topIds = new int[TOP_SIZE];
+        final int[] topCounts = new int[TOP_SIZE];
+        int topSize;
+
+        void increment(int neighbor) {
+            int count = counts.addTo(neighbor, 1);
+            int i = indexInTop(neighbor);
+            if (i < 0 && topSize < TOP_SIZE) {
+                i = topSize++;
+            } else if (i < 0 && count > topCounts[TOP_SIZE - 1]) {
+                i = TOP_SIZE - 1; // Overtakes the weakest neighbor kept, which stays counted
+            }
+            if (i >= 0) {
+                topIds[i] = neighbor;
+                topCounts[i] = count;
+                rise(i);
+            }
+            if (counts.size() > MAX_COUNTED) {
+                prune();
+            }
+        }
+
+        void forget(int neighbor) {
+            counts.remove(neighbor);
+            int i = indexInTop(neighbor);
+            if (i < 0) {
+                return;
+            }
+            topSize--;
+            System.arraycopy(topIds, i + 1, topIds, i, topSize - i);
+            System.arraycopy(topCounts, i + 1, topCounts, i, topSize - i);
+            int best = 0;
+            int bestCount = 0;
+            for (int candidate : counts.keys()) { // Promote the strongest neighbor left out, if any
+                int count = counts.get(candidate, 0);
+                if (count > bestCount && indexInTop(candidate) < 0) {
+                    best = candidate;
+                    bestCount = count;
+                }
+            }
+            if (bestCount > 0) {
+                topIds[topSize] = best;
+                topCounts[topSize] = bestCount;
+                rise(topSize++);
+            }
+        }
+
+        int[] top() {
+            return Arrays.copyOf(topIds, topSize);
+        }
+
+        private int indexInTop(int neighbor) {
+            for (int i = 0; i < topSize; i++) {
+                if (topIds[i] == neighbor) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void rise(int i) {
+            while (i > 0 && topCounts[i - 1] < topCounts[i]) {
+                int id = topIds[i - 1];
+                topIds[i - 1] = topIds[i];
+                topIds[i] = id;
+                int count = topCounts[i - 1];
+                topCounts[i - 1] = topCounts[i];
+                topCounts[i] = count;
+                i--;
+            }
+        }
+
+        // Drops the least co-purchased neighbors outside the top list until at most half the cap is left.
+        // A dropped neighbor that comes back starts again from one.
+        private void prune() {
+            int[] neighbors = counts.keys();
+            int[] outside = new int[neighbors.length];
+            int n = 0;
+            for (int neighbor : neighbors) {
+                if (indexInTop(neighbor) < 0) {
+                    outside[n++] = counts.get(neighbor, 0);
+                }
+            }
+            Arrays.sort(outside, 0, n);
+            int floor = outside[counts.size() - MAX_COUNTED / 2 - 1]; // Ties with it go too
+            for (int neighbor : neighbors) {
+                if (counts.get(neighbor, 0) <= floor && indexInTop(neighbor) < 0) {
+                    counts.remove(neighbor);
+                }
+            }
+        }
+    }
+
+    // Counts each purchase in ids[from..length) against the purchases before it. ids is a buyer's history in
+    // purchase order, starting at least WINDOW purchases before from when there are that many. A book bought
+    // again within the window is not counted twice.
+    void record(int[] ids, int length, int from) {
+        int[] neighbors = new int[WINDOW];
+        for (int i = from; i < length; i++) {
+            int book = ids[i];
+            int start = Math.max(0, i - WINDOW);
+            if (indexOf(ids, start, i, book) >= 0) {
+                continue;
+            }
+            int count = 0;
+            for (int j = start; j < i; j++) {
+                if (indexOf(ids, j + 1, i, ids[j]) < 0) { // Only its latest copy in the window counts
+                    neighbors[count++] = ids[j];
+                }
+            }
+            Stripe stripe = stripeOf(book);
+            synchronized (stripe) {
+                Row row = stripe.row(book);
+                for (int k = 0; k < count; k++) {
+                    row.increment(neighbors[k]);
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                Stripe other = stripeOf(neighbors[k]);
+                synchronized (other) {
+                    other.row(neighbors[k]).increment(book);
+                }
+            }
+        }
+    }
+
+    // The book's most co-purchased neighbors, most often first; at most TOP_SIZE of them
+    int[] top(int bookId) {
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Row row = stripe.existing(bookId);
+            return row == null ? new int[0] : row.top();
+        }
+    }
+
+    // Drops the book from the counts of every neighbor it has and then its own row. Callers keep purchases of
+    // the book from being recorded meanwhile.
+    void remove(int bookId) {
+        int[] neighbors;
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Row row = stripe.existing(bookId);
+            if (row == null) {
+                return;
+            }
+            neighbors = row.counts.keys();
+            stripe.remove(bookId);
+        }
+        for (int neighbor : neighbors) {
+            forget(neighbor, bookId); // One stripe at a time, never two monitors together
+        }
+    }
+
+    // Drops one neighbor from one book's counts; for neighbors the book's own row no longer knew about
+    void forget(int bookId, int neighbor) {
+        Stripe stripe = stripeOf(bookId);
+        synchronized (stripe) {
+            Row row = stripe.existing(bookId);
+            if (row != null) {
+                row.forget(neighbor);
+            }
+        }
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private Stripe stripeOf(int bookId) {
+        return stripes[IntHashSet.mix(bookId) & (STRIPES - 1)];
+    }
+
+    private static int indexOf(int[] ids, int from, int to, int id) {
+        for (int i = from; i < to; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
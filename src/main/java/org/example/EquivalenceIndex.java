@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Books by title, author, genre and price together, so a bulk import can tell with one hash lookup whether
+// the catalog already has a copy of a feed record instead of verifying every book that shares the title's
+// trigrams. Each key maps to the IDs of its books, so adding a book twice or removing one that is not there
+// changes nothing. Not thread-safe; BookService guards it.
+final class EquivalenceIndex {
+    private final Map<Key, IntHashSet> books = new HashMap<>();
+
+    private static final class Key {
+        final String title;
+        final String author;
+        final String genre;
+        final double price;
+
+        Key(String title, String author, String genre, double price) {
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.price = price;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return title.equals(other.title) && author.equals(other.author) && genre.equals(other.genre)
+                    && Double.compare(price, other.price) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = title.hashCode();
+            hash = 31 * hash + author.hashCode();
+            hash = 31 * hash + genre.hashCode();
+            return 31 * hash + Double.hashCode(price);
+        }
+    }
+
+    void add(Book book) {
+        books.computeIfAbsent(keyOf(book), k -> new IntHashSet(4)).add(book.getId());
+    }
+
+    void remove(Book book) {
+        remove(keyOf(book), book.getId());
+    }
+
+    // Moves the book from the key it had before the field changed to the one it has now
+    void update(Book book, Book.Field field, Object oldValue) {
+        remove(new Key(field == Book.Field.TITLE ? (String) oldValue : book.getTitle(),
+                field == Book.Field.AUTHOR ? (String) oldValue : book.getAuthor(),
+                field == Book.Field.GENRE ? (String) oldValue : book.getGenre(),
+                field == Book.Field.PRICE ? (Double) oldValue : book.getPrice()), book.getId());
+        add(book);
+    }
+
+    // Whether some book has the same title, author, genre and price as this one
+    boolean contains(Book book) {
+        return books.containsKey(keyOf(book));
+    }
+
+    private void remove(Key key, int id) {
+        IntHashSet ids = books.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            books.remove(key);
+        }
+    }
+
+    private static Key keyOf(Book book) {
+        return new Key(book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice());
+    }
+}
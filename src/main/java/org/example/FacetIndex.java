@@ -0,0 +1,72 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// Exact-value index over one book field (genre or author): each distinct value maps to the IDs of the books
+// that have it, so a facet's count is a map lookup and its members are found without scanning the catalog.
+// Every change is a hash insert or delete. The first string seen for a value is kept as the canonical one,
+// which catalogs hand back to later books so they share it. Not thread-safe; BookService guards it.
+final class FacetIndex {
+    private static final int[] NO_IDS = new int[0];
+
+    private final Function<Book, String> field;
+    private final Map<String, Facet> facets = new HashMap<>();
+
+    private static final class Facet {
+        final String value;
+        final IntHashSet ids = new IntHashSet(4);
+
+        Facet(String value) {
+            this.value = value;
+        }
+    }
+
+    FacetIndex(Function<Book, String> field) {
+        this.field = field;
+    }
+
+    // Returns the canonical string for the book's value, equal to the book's own
+    String add(Book book) {
+        Facet facet = facets.computeIfAbsent(field.apply(book), Facet::new);
+        facet.ids.add(book.getId());
+        return facet.value;
+    }
+
+    void remove(Book book) {
+        remove(field.apply(book), book.getId());
+    }
+
+    // Moves the book from the facet it had before the field changed to the one it has now
+    String update(Book book, String oldValue) {
+        remove(oldValue, book.getId());
+        return add(book);
+    }
+
+    int count(String value) {
+        Facet facet = facets.get(value);
+        return facet == null ? 0 : facet.ids.size();
+    }
+
+    // IDs of the books with this value, in no particular order
+    int[] members(String value) {
+        Facet facet = facets.get(value);
+        return facet == null ? NO_IDS : facet.ids.toArray();
+    }
+
+    // Every value with its count, sorted by value
+    Map<String, Integer> counts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        facets.forEach((value, facet) -> counts.put(value, facet.ids.size()));
+        return counts;
+    }
+
+    private void remove(String value, int id) {
+        Facet facet = facets.get(value);
+        if (facet != null && facet.ids.remove(id) && facet.ids.isEmpty()) {
+            facets.remove(value); // Values nobody has any more disappear from counts()
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+
+// Rewrites a properties-style file with the latest snapshot. The file is replaced atomically, so readers
+// such as a monitoring agent tailing it never see a half-written snapshot.
+public final class FileMetricsExporter implements MetricsExporter {
+    private final Path file;
+
+    public FileMetricsExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("# " + Instant.ofEpochMilli(snapshot.getTimestampMillis()));
+            writer.newLine();
+            for (Map.Entry<String, Long> value : snapshot.toMap().entrySet()) {
+                writer.write(value.getKey() + "=" + value.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,220 @@
+package org.example;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Typo-tolerant index over the words of every book's title and author. Words are normalized once, when the
+// book is added (accents stripped, lower-cased), and kept in a BK-tree keyed on edit distance: by the triangle
+// inequality a query only has to descend into children whose distance to their parent is within maxEdits of
+// the query's own distance, so it visits a small part of the vocabulary instead of comparing against every
+// word. Each word maps to the IDs of the books containing it. Not thread-safe; BookService guards it.
+final class FuzzyIndex {
+    static final int MAX_EDITS = 2;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int[] NO_IDS = new int[0];
+
+    // Every word in the tree has an entry; when its last book goes the set is left empty instead of
+    // removed, because BK-trees cannot delete. Empty words are dropped when the tree is next rebuilt.
+    private final Map<String, IntHashSet> postings = new HashMap<>();
+    private Node root;
+    private int deadWords;
+
+    private static final class Node {
+        final String word;
+        Node[] children = new Node[0]; // Indexed by edit distance to this word
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+
+    void add(Book book) {
+        for (String word : words(book.getTitle(), book.getAuthor())) {
+            addPosting(word, book.getId());
+        }
+    }
+
+    void remove(Book book) {
+        for (String word : words(book.getTitle(), book.getAuthor())) {
+            removePosting(word, book.getId());
+        }
+        rebuildIfSparse();
+    }
+
+    // Only words that appear in one version and not the other change, so a word the title and author
+    // share stays indexed when just one of them is edited
+    void update(Book book, Book.Field field, Object oldValue) {
+        if (field != Book.Field.TITLE && field != Book.Field.AUTHOR) {
+            return;
+        }
+        Set<String> before = words(field == Book.Field.TITLE ? (String) oldValue : book.getTitle(),
+                field == Book.Field.AUTHOR ? (String) oldValue : book.getAuthor());
+        Set<String> after = words(book.getTitle(), book.getAuthor());
+        for (String word : before) {
+            if (!after.contains(word)) {
+                removePosting(word, book.getId());
+            }
+        }
+        for (String word : after) {
+            if (!before.contains(word)) {
+                addPosting(word, book.getId());
+            }
+        }
+        rebuildIfSparse();
+    }
+
+    // IDs of the books that have, for every word of the query, a word in their title or author within the
+    // allowed number of edits. Short words allow fewer edits (see editsFor), and never more than maxEdits.
+    int[] search(String query, int maxEdits) {
+        IntHashSet result = null;
+        for (String token : words(query)) {
+            IntHashSet matches = new IntHashSet();
+            collect(token, Math.min(maxEdits, editsFor(token)), matches);
+            result = result == null ? matches : intersect(result, matches);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? NO_IDS : result.toArray();
+    }
+
+    // One typo per few letters: "of" must match exactly, while "orwel" may miss a letter
+    static int editsFor(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD); // "é" becomes "e" plus a combining accent
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> words(String... fields) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (String word : SEPARATORS.split(normalize(field))) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    private void addPosting(String word, int id) {
+        IntHashSet ids = postings.get(word);
+        if (ids == null) {
+            ids = new IntHashSet(4);
+            postings.put(word, ids);
+            insert(word);
+        } else if (ids.isEmpty()) {
+            deadWords--; // Back in use
+        }
+        ids.add(id);
+    }
+
+    private void removePosting(String word, int id) {
+        IntHashSet ids = postings.get(word);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            deadWords++;
+        }
+    }
+
+    private void insert(String word) {
+        if (root == null) {
+            root = new Node(word);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word);
+            if (distance >= node.children.length) {
+                node.children = Arrays.copyOf(node.children, distance + 1);
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node(word);
+                return;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    private void collect(String token, int maxEdits, IntHashSet matches) {
+        if (root == null) {
+            return;
+        }
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            int distance = distance(token, node.word);
+            if (distance <= maxEdits) {
+                for (int id : postings.get(node.word).toArray()) {
+                    matches.add(id);
+                }
+            }
+            int from = Math.max(0, distance - maxEdits);
+            int to = Math.min(node.children.length - 1, distance + maxEdits);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.add(node.children[i]);
+                }
+            }
+        }
+    }
+
+    // Rebuilds the tree from the live words once the dead ones outnumber them, so removals do not
+    // leave queries walking a tree made mostly of words nobody uses any more
+    private void rebuildIfSparse() {
+        if (deadWords < 64 || deadWords * 2 < postings.size()) {
+            return;
+        }
+        postings.values().removeIf(IntHashSet::isEmpty);
+        root = null;
+        deadWords = 0;
+        for (String word : postings.keySet()) {
+            insert(word);
+        }
+    }
+
+    private static IntHashSet intersect(IntHashSet a, IntHashSet b) {
+        IntHashSet smaller = a.size() <= b.size() ? a : b;
+        IntHashSet larger = smaller == a ? b : a;
+        IntHashSet result = new IntHashSet(smaller.size());
+        for (int id : smaller.toArray()) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // Levenshtein distance, two rows at a time
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,33 @@
+package org.example;
+
+// A feed line BookImporter rejected, and why
+public final class ImportError {
+    private static final int MAX_LINE_LENGTH = 200; // Keeps reports small when a feed has huge broken lines
+
+    private final long lineNumber;
+    private final String line;
+    private final String message;
+
+    ImportError(long lineNumber, String line, String message) {
+        this.lineNumber = lineNumber;
+        this.line = line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) + "..." : line;
+        this.message = message;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + lineNumber + ": " + message;
+    }
+}
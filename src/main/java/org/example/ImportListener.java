@@ -0,0 +1,15 @@
+package org.example;
+
+// Callbacks from BookImporter, made on the importing thread after each batch
+public interface ImportListener {
+    ImportListener NONE = new ImportListener() {
+    };
+
+    // Running totals: lines read so far and what became of them
+    default void progress(long lines, long imported, long duplicates, long failed) {
+    }
+
+    // Every line that could not be parsed, in file order
+    default void recordFailed(ImportError error) {
+    }
+}
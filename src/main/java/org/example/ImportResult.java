@@ -0,0 +1,58 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+// Totals of one BookImporter run
+public final class ImportResult {
+    static final int MAX_ERRORS = 1000; // The listener sees every error; the result keeps only the first ones
+
+    private final long lines;
+    private final long imported;
+    private final long duplicates;
+    private final long failed;
+    private final List<ImportError> errors;
+    private final long elapsedNanos;
+
+    ImportResult(long lines, long imported, long duplicates, long failed, List<ImportError> errors, long elapsedNanos) {
+        this.lines = lines;
+        this.imported = imported;
+        this.duplicates = duplicates;
+        this.failed = failed;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Every line read, including blank lines and the CSV header
+    public long getLines() {
+        return lines;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    // The first MAX_ERRORS failures, in file order
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{lines=" + lines + ", imported=" + imported + ", duplicates=" + duplicates
+                + ", failed=" + failed + ", elapsed=" + getElapsed() + "}";
+    }
+}
@@ -0,0 +1,143 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Open-addressing set of ints with linear probing: 4 bytes per slot and no boxing.
+// Deletion uses backward shifting, so there are no tombstones to clean up. Not thread-safe.
+final class IntHashSet {
+    private static final int EMPTY = 0; // Key 0 is tracked separately so it can mark free slots
+
+    private int[] keys;
+    private int size;
+    private boolean containsZero;
+
+    IntHashSet() {
+        this(8);
+    }
+
+    IntHashSet(int expectedSize) {
+        keys = new int[tableSizeFor(expectedSize)];
+    }
+
+    boolean contains(int key) {
+        if (key == EMPTY) {
+            return containsZero;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean add(int key) {
+        if (key == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return false;
+            }
+        }
+        keys[i] = key;
+        if (++size > keys.length * 3 / 4) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    boolean remove(int key) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; keys[i] != key; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) {
+                return false;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+        // Shift later entries of the same probe run back into the hole
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsZero = false;
+    }
+
+    int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        if (containsZero) {
+            result[n++] = 0;
+        }
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = keys;
+        keys = new int[capacity];
+        int mask = capacity - 1;
+        for (int key : old) {
+            if (key != EMPTY) {
+                int i = mix(key) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential IDs across the table
+        return h ^ (h >>> 16);
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = 8;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
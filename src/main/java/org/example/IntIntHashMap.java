@@ -0,0 +1,156 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Open-addressing int -> int map with linear probing, laid out like IntHashSet: parallel key and value
+// arrays, 8 bytes per slot and no boxing, backward-shift deletion. Not thread-safe.
+final class IntIntHashMap {
+    private static final int EMPTY = 0; // Key 0 is tracked separately so it can mark free slots
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private boolean containsZero;
+    private int zeroValue;
+
+    IntIntHashMap() {
+        this(8);
+    }
+
+    IntIntHashMap(int expectedSize) {
+        keys = new int[IntHashSet.tableSizeFor(expectedSize)];
+        values = new int[keys.length];
+    }
+
+    // The key's value, or missing if the map has no entry for it
+    int get(int key, int missing) {
+        if (key == EMPTY) {
+            return containsZero ? zeroValue : missing;
+        }
+        int mask = keys.length - 1;
+        for (int i = IntHashSet.mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return missing;
+    }
+
+    void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = IntHashSet.mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 3 / 4) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    // Adds delta to the key's value, starting from 0 if absent, with one probe; returns the new value
+    int addTo(int key, int delta) {
+        if (key == EMPTY) {
+            put(key, (containsZero ? zeroValue : 0) + delta);
+            return zeroValue;
+        }
+        int mask = keys.length - 1;
+        int i = IntHashSet.mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i] += delta;
+            }
+        }
+        keys[i] = key;
+        values[i] = delta;
+        if (++size > keys.length * 3 / 4) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+
+    boolean remove(int key) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = IntHashSet.mix(key) & mask;
+        for (; keys[i] != key; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) {
+                return false;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+        // Shift later entries of the same probe run back into the hole
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = IntHashSet.mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsZero = false;
+    }
+
+    int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        if (containsZero) {
+            result[n++] = 0;
+        }
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int n = 0; n < oldKeys.length; n++) {
+            if (oldKeys[n] != EMPTY) {
+                int i = IntHashSet.mix(oldKeys[n]) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[n];
+                values[i] = oldValues[n];
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+// Publishes the latest snapshot as read-only attributes of an MBean on the platform MBean server,
+// one attribute per toMap() key, so JConsole or a JMX scraper can read them
+public final class JmxMetricsExporter implements MetricsExporter, DynamicMBean, Closeable {
+    public static final String DEFAULT_NAME = "org.example:type=Metrics";
+
+    private final ObjectName name;
+    private final MBeanInfo info;
+    private volatile Map<String, Long> values;
+
+    public JmxMetricsExporter() throws IOException {
+        this(DEFAULT_NAME);
+    }
+
+    public JmxMetricsExporter(String name) throws IOException {
+        values = Metrics.DISABLED.snapshot().toMap(); // All zeros until the first export, but with every key
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+        for (String key : values.keySet()) {
+            attributes[i++] = new MBeanAttributeInfo(key, Long.class.getName(), key, true, false, false);
+        }
+        info = new MBeanInfo(getClass().getName(), "BookService and UserService metrics", attributes,
+                null, new MBeanOperationInfo[0], null);
+        try {
+            this.name = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name);
+        } catch (JMException e) {
+            throw new IOException("Cannot register metrics MBean " + name, e);
+        }
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        values = snapshot.toMap();
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = values.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Long> current = values; // One snapshot for the whole batch
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Long value = current.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList(); // Nothing is writable
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IOException("Cannot unregister metrics MBean " + name, e);
+        }
+    }
+}
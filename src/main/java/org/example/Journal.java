@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Where BookService and UserService record their mutations. A mutation is appended while the service
+// still holds its own locks, so the log order matches the order the changes were applied in, and the
+// caller waits for durability only after releasing them, which lets concurrent writers share one fsync.
+interface Journal {
+    Journal NONE = new Journal() {
+        @Override
+        public void beginMutation() {
+        }
+
+        @Override
+        public long append(Mutation mutation) {
+            return 0;
+        }
+
+        @Override
+        public long append(Mutation mutation, AtomicLong sequences) {
+            mutation.sequence = sequences.getAndIncrement(); // No LSNs to follow
+            return 0;
+        }
+
+        @Override
+        public void endMutation() {
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+    };
+
+    // Brackets applying and appending a mutation, so a checkpoint never sees one without the other
+    void beginMutation();
+
+    long append(Mutation mutation);
+
+    // append that also draws mutation.sequence from sequences in the step that hands out the LSN, so values
+    // drawn this way come in LSN order. Journals that hand out LSNs under their own lock override this.
+    default long append(Mutation mutation, AtomicLong sequences) {
+        synchronized (this) {
+            mutation.sequence = sequences.getAndIncrement();
+            return append(mutation);
+        }
+    }
+
+    void endMutation();
+
+    void awaitDurable(long lsn);
+}
@@ -1,12 +1,25 @@
 package org.example;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // Creating an instance of UserService
         UserService userService = new UserService();
 
+        // Creating an instance of BookService
+        BookService bookService = new BookService();
+
+        // Recording how long each operation takes and how often it fails
+        Metrics metrics = new Metrics();
+        userService.setMetrics(metrics);
+        bookService.setMetrics(metrics);
+
+        // Keeping the data between runs when a data directory is given
+        Persistence persistence = args.length > 0 ? Persistence.open(Paths.get(args[0]), bookService, userService) : null;
+
         // Creating a new User
         User newUser = new User("JohnDoe", "password", "johndoe@example.com");
 
@@ -26,12 +39,11 @@ public class Main {
             System.out.println("User login failed. Username and password do not match.");
         }
 
-        // Creating an instance of BookService
-        BookService bookService = new BookService();
-
-        // Adding some books to the "database"
-        bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99));
-        bookService.addBook(new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99));
+        // Adding some books to the "database", unless they were loaded from disk
+        if (bookService.getBookCount() == 0) {
+            bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99));
+            bookService.addBook(new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99));
+        }
 
         // Searching for a book
         List<Book> books = bookService.searchBook("1984");
@@ -44,6 +56,9 @@ public class Main {
             System.out.println("No books found with the given keyword.");
         }
 
+        // Adding funds to the user's account, in cents
+        userService.deposit(loggedInUser, 2000);
+
         // Purchasing a book
         Book bookToPurchase = books.get(0);
         boolean purchaseSuccessful = bookService.purchaseBook(loggedInUser, bookToPurchase);
@@ -60,5 +75,12 @@ public class Main {
         } else {
             System.out.println("Failed to add review. The user might not have purchased this book.");
         }
+
+        // Printing what the operations above cost
+        System.out.print(metrics.snapshot());
+
+        if (persistence != null) {
+            persistence.close();
+        }
     }
 }
@@ -0,0 +1,132 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-operation latency histograms and outcome counters for BookService and UserService. Attach one
+// instance to both services with setMetrics; the services start out with DISABLED, whose start() and
+// record() return before reading the clock, so uninstrumented services pay only a field read and a branch.
+public final class Metrics {
+    public enum Operation {
+        SEARCH_BOOK("searchBook"),
+        FUZZY_SEARCH_BOOK("fuzzySearchBook"),
+        PURCHASE_BOOK("purchaseBook"),
+        PURCHASE_BOOKS("purchaseBooks"),
+        ADD_BOOK_REVIEW("addBookReview"),
+        LOGIN_USER("loginUser"),
+        REGISTER_USER("registerUser"),
+        AUTHENTICATE("authenticate");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS("success"),
+        NO_RESULTS("noResults"),
+        BOOK_NOT_FOUND("bookNotFound"),
+        OUT_OF_STOCK("outOfStock"),
+        INSUFFICIENT_FUNDS("insufficientFunds"),
+        NOT_PURCHASED("notPurchased"),
+        USERNAME_TAKEN("usernameTaken"),
+        USER_NOT_FOUND("userNotFound"),
+        WRONG_PASSWORD("wrongPassword"),
+        INVALID_SESSION("invalidSession");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int OUTCOMES = Outcome.values().length;
+    public static final Metrics DISABLED = new Metrics(false); // After OUTCOMES, which its constructor uses
+
+    private final boolean enabled;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLongArray outcomes = new AtomicLongArray(Operation.values().length * OUTCOMES);
+
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // Start time to pass to record()
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void record(Operation operation, Outcome outcome, long start) {
+        if (!enabled) {
+            return;
+        }
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+        outcomes.incrementAndGet(outcomeIndex(operation, outcome));
+    }
+
+    public MetricsSnapshot snapshot() {
+        LatencyHistogram.Snapshot[] latencySnapshots = new LatencyHistogram.Snapshot[latencies.length];
+        long[] outcomeCounts = new long[outcomes.length()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencySnapshots[i] = latencies[i].snapshot();
+        }
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] = outcomes.get(i);
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), latencySnapshots, outcomeCounts);
+    }
+
+    // Hands a snapshot to the exporter every period, and a final one when the returned handle is closed
+    public Closeable exportEvery(MetricsExporter exporter, Duration period) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable export = () -> {
+            try {
+                exporter.export(snapshot());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Metrics export failed: " + e); // Try again next period
+            }
+        };
+        long millis = period.toMillis();
+        scheduler.scheduleWithFixedDelay(export, millis, millis, TimeUnit.MILLISECONDS);
+        return () -> {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exporter.export(snapshot());
+        };
+    }
+
+    static int outcomeIndex(Operation operation, Outcome outcome) {
+        return operation.ordinal() * OUTCOMES + outcome.ordinal();
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.io.IOException;
+
+// Destination for metrics snapshots, see Metrics.exportEvery
+public interface MetricsExporter {
+    void export(MetricsSnapshot snapshot) throws IOException;
+}
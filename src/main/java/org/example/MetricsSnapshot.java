@@ -0,0 +1,86 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Counters and latency percentiles of every operation at one point in time
+public final class MetricsSnapshot {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final long timestampMillis;
+    private final LatencyHistogram.Snapshot[] latencies;
+    private final long[] outcomes;
+
+    MetricsSnapshot(long timestampMillis, LatencyHistogram.Snapshot[] latencies, long[] outcomes) {
+        this.timestampMillis = timestampMillis;
+        this.latencies = latencies;
+        this.outcomes = outcomes;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getCount(Metrics.Operation operation) {
+        return latencies[operation.ordinal()].getCount();
+    }
+
+    public long getCount(Metrics.Operation operation, Metrics.Outcome outcome) {
+        return outcomes[Metrics.outcomeIndex(operation, outcome)];
+    }
+
+    // percentile is 0-100, e.g. 99.9
+    public long getLatencyNanos(Metrics.Operation operation, double percentile) {
+        return latencies[operation.ordinal()].getPercentile(percentile);
+    }
+
+    public long getMeanLatencyNanos(Metrics.Operation operation) {
+        return latencies[operation.ordinal()].getMean();
+    }
+
+    public long getMaxLatencyNanos(Metrics.Operation operation) {
+        return latencies[operation.ordinal()].getMax();
+    }
+
+    // Flat "operation.name" -> value view for exporters, e.g. "loginUser.wrongPassword" or "searchBook.p99Nanos"
+    public Map<String, Long> toMap() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Metrics.Operation operation : Metrics.Operation.values()) {
+            String prefix = operation.getLabel() + ".";
+            values.put(prefix + "count", getCount(operation));
+            for (Metrics.Outcome outcome : Metrics.Outcome.values()) {
+                values.put(prefix + outcome.getLabel(), getCount(operation, outcome));
+            }
+            values.put(prefix + "meanNanos", getMeanLatencyNanos(operation));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                values.put(prefix + PERCENTILE_NAMES[i] + "Nanos", getLatencyNanos(operation, PERCENTILES[i]));
+            }
+            values.put(prefix + "maxNanos", getMaxLatencyNanos(operation));
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Metrics.Operation operation : Metrics.Operation.values()) {
+            long count = getCount(operation);
+            if (count == 0) {
+                continue;
+            }
+            text.append(operation.getLabel()).append(": count=").append(count);
+            for (Metrics.Outcome outcome : Metrics.Outcome.values()) {
+                long outcomeCount = getCount(operation, outcome);
+                if (outcomeCount != 0) {
+                    text.append(' ').append(outcome.getLabel()).append('=').append(outcomeCount);
+                }
+            }
+            text.append(" p50=").append(getLatencyNanos(operation, 50) / 1000).append("us")
+                    .append(" p99=").append(getLatencyNanos(operation, 99) / 1000).append("us")
+                    .append(" max=").append(getMaxLatencyNanos(operation) / 1000).append("us")
+                    .append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,338 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// One state change of BookService or UserService, as written to the write-ahead log
+final class Mutation {
+    // The ordinal is what the log stores
+    enum Type { ADD_BOOK, REMOVE_BOOK, UPDATE_BOOK, REGISTER_USER, UPDATE_USER, PURCHASE, ADD_REVIEW,
+        SET_STOCK, DEPOSIT, BATCH_PURCHASE, SET_REVIEWS, SET_PURCHASES }
+
+    final Type type;
+    final int bookId;
+    final String title;
+    final String author;
+    final String genre;
+    final double price;
+    final String username; // The account as it was named when the mutation happened
+    final String newUsername;
+    final String password;
+    final String email;
+    final String review;
+    final long amount; // Cents for DEPOSIT, PURCHASE and BATCH_PURCHASE, copies for SET_STOCK
+    final int[] bookIds; // The books of a BATCH_PURCHASE in cart order, or of a user's history in purchase order
+    final String[] reviews; // All of a book's reviews, oldest first, for ADD_BOOK and SET_REVIEWS
+    long sequence; // The ChangeFeed sequence drawn with the LSN, for mutations that publish an event; not logged
+
+    private Mutation(Type type, int bookId, String title, String author, String genre, double price,
+                     String username, String newUsername, String password, String email, String review) {
+        this(type, bookId, title, author, genre, price, username, newUsername, password, email, review, 0);
+    }
+
+    private Mutation(Type type, int bookId, String title, String author, String genre, double price,
+                     String username, String newUsername, String password, String email, String review, long amount) {
+        this(type, bookId, title, author, genre, price, username, newUsername, password, email, review, amount, null);
+    }
+
+    private Mutation(Type type, int bookId, String title, String author, String genre, double price,
+                     String username, String newUsername, String password, String email, String review, long amount,
+                     int[] bookIds) {
+        this(type, bookId, title, author, genre, price, username, newUsername, password, email, review, amount, bookIds,
+                null);
+    }
+
+    private Mutation(Type type, int bookId, String title, String author, String genre, double price,
+                     String username, String newUsername, String password, String email, String review, long amount,
+                     int[] bookIds, String[] reviews) {
+        this.type = type;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.genre = genre;
+        this.price = price;
+        this.username = username;
+        this.newUsername = newUsername;
+        this.password = password;
+        this.email = email;
+        this.review = review;
+        this.amount = amount;
+        this.bookIds = bookIds;
+        this.reviews = reviews;
+    }
+
+    // With the reviews the book was created with or given through setReviews before it was cataloged
+    static Mutation addBook(Book book) {
+        return new Mutation(Type.ADD_BOOK, book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                book.getPrice(), null, null, null, null, null, 0, null, reviewsOf(book));
+    }
+
+    static Mutation setReviews(Book book) {
+        return new Mutation(Type.SET_REVIEWS, book.getId(), null, null, null, 0, null, null, null, null, null, 0, null,
+                reviewsOf(book));
+    }
+
+    static Mutation updateBook(Book book) {
+        return new Mutation(Type.UPDATE_BOOK, book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                book.getPrice(), null, null, null, null, null);
+    }
+
+    static Mutation removeBook(Book book) {
+        return new Mutation(Type.REMOVE_BOOK, book.getId(), null, null, null, 0, null, null, null, null, null);
+    }
+
+    // With the purchase history the user was created with or given through setPurchasedBooks beforehand
+    static Mutation registerUser(User user) {
+        return new Mutation(Type.REGISTER_USER, 0, null, null, null, 0,
+                user.getUsername(), null, user.getPassword(), user.getEmail(), null, 0, historyOf(user));
+    }
+
+    static Mutation setPurchases(User user) {
+        return new Mutation(Type.SET_PURCHASES, 0, null, null, null, 0, user.getUsername(), null, null, null, null, 0,
+                historyOf(user));
+    }
+
+    static Mutation updateUser(String oldUsername, User user) {
+        return new Mutation(Type.UPDATE_USER, 0, null, null, null, 0,
+                oldUsername, user.getUsername(), user.getPassword(), user.getEmail(), null);
+    }
+
+    static Mutation purchase(User user, Book book, long priceCents) {
+        return new Mutation(Type.PURCHASE, book.getId(), null, null, null, 0,
+                user.getUsername(), null, null, null, null, priceCents);
+    }
+
+    // One record for a whole cart, so replay applies it entirely or, if the log was torn inside it, not at all
+    static Mutation purchase(User user, List<Book> books, long totalCents) {
+        int[] bookIds = new int[books.size()];
+        for (int i = 0; i < bookIds.length; i++) {
+            bookIds[i] = books.get(i).getId();
+        }
+        return new Mutation(Type.BATCH_PURCHASE, 0, null, null, null, 0,
+                user.getUsername(), null, null, null, null, totalCents, bookIds);
+    }
+
+    static Mutation setStock(Book book) {
+        return new Mutation(Type.SET_STOCK, book.getId(), null, null, null, 0, null, null, null, null, null, book.getStock());
+    }
+
+    static Mutation deposit(User user, long cents) {
+        return new Mutation(Type.DEPOSIT, 0, null, null, null, 0, user.getUsername(), null, null, null, null, cents);
+    }
+
+    static Mutation addReview(User user, Book book, String review) {
+        return new Mutation(Type.ADD_REVIEW, book.getId(), null, null, null, 0,
+                user.getUsername(), null, null, null, review);
+    }
+
+    private static String[] reviewsOf(Book book) {
+        ReviewLog log = book.reviewLog();
+        return log == null ? new String[0] : log.toArray();
+    }
+
+    private static int[] historyOf(User user) {
+        List<Book> history = user.getPurchasedBooks();
+        synchronized (history) {
+            return history.stream().mapToInt(Book::getId).toArray();
+        }
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type.ordinal());
+            switch (type) {
+                case ADD_BOOK:
+                case UPDATE_BOOK:
+                    out.writeInt(bookId);
+                    writeString(out, title);
+                    writeString(out, author);
+                    writeString(out, genre);
+                    out.writeDouble(price);
+                    if (type == Type.ADD_BOOK) {
+                        writeStrings(out, reviews);
+                    }
+                    break;
+                case REMOVE_BOOK:
+                    out.writeInt(bookId);
+                    break;
+                case REGISTER_USER:
+                    writeString(out, username);
+                    writeString(out, password);
+                    writeString(out, email);
+                    writeInts(out, bookIds);
+                    break;
+                case UPDATE_USER:
+                    writeString(out, username);
+                    writeString(out, newUsername);
+                    writeString(out, password);
+                    writeString(out, email);
+                    break;
+                case ADD_REVIEW:
+                    writeString(out, username);
+                    out.writeInt(bookId);
+                    writeString(out, review);
+                    break;
+                case SET_STOCK:
+                    out.writeInt(bookId);
+                    out.writeInt((int) amount);
+                    break;
+                case DEPOSIT:
+                    writeString(out, username);
+                    out.writeLong(amount);
+                    break;
+                case PURCHASE:
+                    writeString(out, username);
+                    out.writeInt(bookId);
+                    out.writeLong(amount);
+                    break;
+                case BATCH_PURCHASE:
+                    writeString(out, username);
+                    out.writeLong(amount);
+                    writeInts(out, bookIds);
+                    break;
+                case SET_REVIEWS:
+                    out.writeInt(bookId);
+                    writeStrings(out, reviews);
+                    break;
+                case SET_PURCHASES:
+                    writeString(out, username);
+                    writeInts(out, bookIds);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown mutation type " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen when writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    static Mutation decode(ByteBuffer in) {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= Type.values().length) {
+            throw new IllegalStateException("Unknown mutation type " + ordinal);
+        }
+        Type type = Type.values()[ordinal];
+        switch (type) {
+            case ADD_BOOK: {
+                int bookId = in.getInt();
+                String title = readString(in);
+                String author = readString(in);
+                String genre = readString(in);
+                double price = in.getDouble();
+                return new Mutation(type, bookId, title, author, genre, price, null, null, null, null, null, 0, null,
+                        readStrings(in));
+            }
+            case UPDATE_BOOK:
+                return new Mutation(type, in.getInt(), readString(in), readString(in), readString(in), in.getDouble(),
+                        null, null, null, null, null);
+            case REMOVE_BOOK:
+                return new Mutation(type, in.getInt(), null, null, null, 0, null, null, null, null, null);
+            case REGISTER_USER: {
+                String username = readString(in);
+                String password = readString(in);
+                String email = readString(in);
+                return new Mutation(type, 0, null, null, null, 0, username, null, password, email, null, 0, readInts(in));
+            }
+            case UPDATE_USER:
+                return new Mutation(type, 0, null, null, null, 0,
+                        readString(in), readString(in), readString(in), readString(in), null);
+            case ADD_REVIEW: {
+                String username = readString(in);
+                int bookId = in.getInt();
+                return new Mutation(type, bookId, null, null, null, 0, username, null, null, null, readString(in));
+            }
+            case SET_STOCK:
+                return new Mutation(type, in.getInt(), null, null, null, 0, null, null, null, null, null, in.getInt());
+            case DEPOSIT: {
+                String username = readString(in);
+                return new Mutation(type, 0, null, null, null, 0, username, null, null, null, null, in.getLong());
+            }
+            case PURCHASE: {
+                String username = readString(in);
+                int bookId = in.getInt();
+                return new Mutation(type, bookId, null, null, null, 0, username, null, null, null, null, in.getLong());
+            }
+            case BATCH_PURCHASE: {
+                String username = readString(in);
+                long amount = in.getLong();
+                return new Mutation(type, 0, null, null, null, 0, username, null, null, null, null, amount, readInts(in));
+            }
+            case SET_REVIEWS: {
+                int bookId = in.getInt();
+                return new Mutation(type, bookId, null, null, null, 0, null, null, null, null, null, 0, null,
+                        readStrings(in));
+            }
+            case SET_PURCHASES: {
+                String username = readString(in);
+                return new Mutation(type, 0, null, null, null, 0, username, null, null, null, null, 0, readInts(in));
+            }
+            default:
+                throw new IllegalStateException("Unknown mutation type " + type);
+        }
+    }
+
+    // Length-prefixed UTF-8, without the 64 KB limit of writeUTF; -1 encodes null
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutput out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] values = new String[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getInt();
+        }
+        return values;
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length]; // Memory-mapped input has no backing array
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
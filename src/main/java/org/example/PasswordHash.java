@@ -0,0 +1,77 @@
+package org.example;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2-HMAC-SHA256 password hashes from the JDK, encoded as "pbkdf2-sha256$iterations$salt$hash"
+// (Base64), so each stored hash carries its own cost and the cost can be raised without breaking old ones
+final class PasswordHash {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHash() {
+    }
+
+    static String hash(String password, int iterations) {
+        if (password == null) {
+            throw new IllegalArgumentException("Password cannot be null");
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    // The stored hash if the password matches it, so an unchanged password keeps its hash, and otherwise a
+    // new hash with a fresh salt: reusing the old salt would make a return to an earlier password show up as
+    // a byte-identical hash
+    static String rehash(String password, String encoded, int iterations) {
+        return verify(password, encoded) ? encoded : hash(password, iterations);
+    }
+
+    // Recomputes the hash with the stored salt and cost; false for anything that is not a well-formed hash
+    static boolean verify(String password, String encoded) {
+        if (password == null || !isEncoded(encoded)) {
+            return false;
+        }
+        String[] parts = encoded.substring(PREFIX.length()).split("\\$");
+        byte[] salt = Base64.getDecoder().decode(parts[1]);
+        byte[] expected = Base64.getDecoder().decode(parts[2]);
+        return MessageDigest.isEqual(expected, pbkdf2(password, salt, Integer.parseInt(parts[0]))); // Constant time
+    }
+
+    static boolean isEncoded(String value) {
+        if (value == null || !value.startsWith(PREFIX)) {
+            return false;
+        }
+        String[] parts = value.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3 || !parts[0].matches("[1-9][0-9]{0,8}")) {
+            return false;
+        }
+        try {
+            Base64.getDecoder().decode(parts[1]);
+            return Base64.getDecoder().decode(parts[2]).length == HASH_BITS / 8;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded(); // Factories are not thread-safe
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e); // Every Java SE 8+ JDK has it
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Makes a BookService and UserService durable: on open it loads the latest snapshot, replays the log tail
+// written after it, and from then on logs every mutation and checkpoints periodically.
+public final class Persistence implements Closeable {
+    public static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofMinutes(5);
+
+    private final Path directory;
+    private final BookService bookService;
+    private final UserService userService;
+    private final WriteAheadLog log;
+    private final ScheduledExecutorService checkpoints;
+    private final long recoveryNanos;
+
+    private Persistence(Path directory, BookService bookService, UserService userService, WriteAheadLog log,
+                        Duration checkpointInterval, long recoveryNanos) {
+        this.directory = directory;
+        this.bookService = bookService;
+        this.userService = userService;
+        this.log = log;
+        this.recoveryNanos = recoveryNanos;
+        this.checkpoints = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = checkpointInterval.toMillis();
+        checkpoints.scheduleWithFixedDelay(this::checkpointQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static Persistence open(Path directory, BookService bookService, UserService userService) throws IOException {
+        return open(directory, bookService, userService, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    // The services must be empty: recovered books keep the IDs they were logged with, which books cataloged
+    // beforehand could already have, so recovery into a service that holds anything is refused
+    public static Persistence open(Path directory, BookService bookService, UserService userService,
+                                   Duration checkpointInterval) throws IOException {
+        if (bookService.getBookCount() > 0 || !userService.users().isEmpty()) {
+            throw new IllegalStateException("Persistence must be opened on empty services");
+        }
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+
+        long lsn = 0;
+        Path snapshot = SnapshotFile.latest(directory);
+        if (snapshot != null) {
+            lsn = SnapshotFile.load(snapshot, bookService, userService);
+        }
+        lsn = WriteAheadLog.replay(directory, lsn, mutation -> apply(mutation, bookService, userService));
+        bookService.rebuildRecommendations(userService.users()); // Replay fills histories directly, not through purchases
+
+        WriteAheadLog log = new WriteAheadLog(directory, lsn);
+        bookService.setJournal(log);
+        userService.setJournal(log);
+        return new Persistence(directory, bookService, userService, log, checkpointInterval, System.nanoTime() - start);
+    }
+
+    // Writes a snapshot of the current state and drops the log segments it covers; returns its LSN
+    public synchronized long checkpoint() throws IOException {
+        long lsn;
+        List<SnapshotFile.BookState> books = new ArrayList<>();
+        List<SnapshotFile.BookState> retiredBooks = new ArrayList<>();
+        List<SnapshotFile.UserState> users = new ArrayList<>();
+        log.lockExclusive(); // Pause mutations only while copying, not while writing the file
+        try {
+            lsn = log.roll();
+            IntHashSet saved = new IntHashSet();
+            for (Book book : bookService.books()) {
+                books.add(new SnapshotFile.BookState(book));
+                saved.add(book.getId());
+            }
+            for (User user : userService.users()) {
+                users.add(new SnapshotFile.UserState(user));
+                List<Book> history = user.getPurchasedBooks();
+                synchronized (history) {
+                    for (Book book : history) {
+                        if (saved.add(book.getId())) { // Bought, then removed from the catalog: kept for the history
+                            retiredBooks.add(new SnapshotFile.BookState(book));
+                        }
+                    }
+                }
+            }
+        } finally {
+            log.unlockExclusive();
+        }
+
+        SnapshotFile.write(directory, lsn, books, retiredBooks, users);
+        SnapshotFile.deleteOlderThan(directory, lsn);
+        log.deleteSegmentsUpTo(lsn);
+        return lsn;
+    }
+
+    // Time it took open() to load the snapshot and replay the log
+    public Duration getRecoveryTime() {
+        return Duration.ofNanos(recoveryNanos);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        checkpoints.shutdownNow();
+        bookService.setJournal(Journal.NONE);
+        userService.setJournal(Journal.NONE);
+        log.close();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            // Thrown out of the task, it would cancel every later run and the log would grow for good
+            System.err.println("Checkpoint failed: " + e); // Try again next period
+        }
+    }
+
+    private static void apply(Mutation mutation, BookService bookService, UserService userService) {
+        switch (mutation.type) {
+            case ADD_BOOK: {
+                Book book = new Book(mutation.title, mutation.author, mutation.genre, mutation.price,
+                        Arrays.asList(mutation.reviews));
+                book.restoreId(mutation.bookId);
+                bookService.addBook(book);
+                break;
+            }
+            case REMOVE_BOOK: {
+                Book book = bookService.getBook(mutation.bookId);
+                if (book != null) {
+                    bookService.removeBook(book);
+                }
+                break;
+            }
+            case UPDATE_BOOK: {
+                Book book = bookService.getBook(mutation.bookId);
+                if (book != null) {
+                    book.setTitle(mutation.title);
+                    book.setAuthor(mutation.author);
+                    book.setGenre(mutation.genre);
+                    book.setPrice(mutation.price);
+                }
+                break;
+            }
+            case REGISTER_USER:
+                userService.restoreUser(new User(mutation.username, mutation.password, mutation.email,
+                        books(mutation.bookIds, bookService)));
+                break;
+            case UPDATE_USER: {
+                User user = userService.getUser(mutation.username);
+                if (user != null) {
+                    userService.restoreProfile(user, mutation.newUsername, mutation.password, mutation.email);
+                }
+                break;
+            }
+            case PURCHASE: {
+                // Checks were made when the purchase happened; replay only repeats its effects
+                User user = userService.getUser(mutation.username);
+                Book book = bookService.getBook(mutation.bookId);
+                if (user != null) {
+                    user.credit(-mutation.amount);
+                }
+                if (book != null) {
+                    book.reserveCopy();
+                    if (user != null) {
+                        user.getPurchasedBooks().add(book);
+                    }
+                }
+                break;
+            }
+            case BATCH_PURCHASE: {
+                User user = userService.getUser(mutation.username);
+                if (user != null) {
+                    user.credit(-mutation.amount);
+                }
+                List<Book> books = new ArrayList<>(mutation.bookIds.length);
+                for (int id : mutation.bookIds) {
+                    Book book = bookService.getBook(id);
+                    if (book != null) {
+                        book.reserveCopy();
+                        books.add(book);
+                    }
+                }
+                if (user != null) {
+                    user.getPurchasedBooks().addAll(books);
+                }
+                break;
+            }
+            case SET_STOCK: {
+                Book book = bookService.getBook(mutation.bookId);
+                if (book != null) {
+                    book.restoreStock((int) mutation.amount);
+                }
+                break;
+            }
+            case DEPOSIT: {
+                User user = userService.getUser(mutation.username);
+                if (user != null) {
+                    user.credit(mutation.amount);
+                }
+                break;
+            }
+            case ADD_REVIEW: {
+                Book book = bookService.getBook(mutation.bookId);
+                if (book != null) {
+                    book.addReview(mutation.review); // Ownership was checked when the review was first added
+                }
+                break;
+            }
+            case SET_REVIEWS: {
+                Book book = bookService.getBook(mutation.bookId);
+                if (book != null) {
+                    book.setReviews(Arrays.asList(mutation.reviews));
+                }
+                break;
+            }
+            case SET_PURCHASES: {
+                User user = userService.getUser(mutation.username);
+                if (user != null) {
+                    user.setPurchasedBooks(books(mutation.bookIds, bookService));
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown mutation type " + mutation.type);
+        }
+    }
+
+    // The cataloged books with the given IDs, in order; books the catalog no longer has are left out
+    private static List<Book> books(int[] ids, BookService bookService) {
+        List<Book> books = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Book book = bookService.getBook(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+}
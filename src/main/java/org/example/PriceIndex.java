@@ -0,0 +1,231 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Books ordered by price, kept in primitive columns. The bulk lives in a sorted main run (parallel
+// double[] prices / int[] ids / Book[] books); recent additions go to a small unsorted delta and removals
+// to a set of deleted IDs, and both are folded into a new main run once they grow past a fraction of it.
+// Queries never modify the index, so they can run concurrently under BookService's read lock.
+class PriceIndex {
+    private static final int MIN_DELTA = 1024;
+    private static final int MAX_DELTA = 65536; // Keeps the linear delta scan in remove() short
+
+    private double[] mainPrices = new double[0];
+    private int[] mainIds = new int[0];
+    private Book[] mainBooks = new Book[0];
+    private final IntHashSet deleted = new IntHashSet(); // IDs in the main run that no longer count
+
+    private double[] deltaPrices = new double[16];
+    private int[] deltaIds = new int[16];
+    private Book[] deltaBooks = new Book[16];
+    private int deltaSize;
+
+    void add(Book book) {
+        if (deltaSize == deltaIds.length) {
+            int capacity = deltaSize * 2;
+            deltaPrices = Arrays.copyOf(deltaPrices, capacity);
+            deltaIds = Arrays.copyOf(deltaIds, capacity);
+            deltaBooks = Arrays.copyOf(deltaBooks, capacity);
+        }
+        deltaPrices[deltaSize] = book.getPrice();
+        deltaIds[deltaSize] = book.getId();
+        deltaBooks[deltaSize] = book;
+        deltaSize++;
+        compactIfNeeded();
+    }
+
+    void remove(Book book) {
+        int id = book.getId();
+        for (int i = 0; i < deltaSize; i++) {
+            if (deltaIds[i] == id) {
+                deltaSize--;
+                deltaPrices[i] = deltaPrices[deltaSize];
+                deltaIds[i] = deltaIds[deltaSize];
+                deltaBooks[i] = deltaBooks[deltaSize];
+                deltaBooks[deltaSize] = null;
+                return;
+            }
+        }
+        deleted.add(id); // Must be in the main run
+        compactIfNeeded();
+    }
+
+    void update(Book book) {
+        remove(book);
+        add(book);
+    }
+
+    // Books priced within [minPrice, maxPrice], cheapest first
+    List<Book> range(double minPrice, double maxPrice) {
+        int from = lowerBound(minPrice);
+        int to = lowerBound(Math.nextUp(maxPrice));
+        int[] main = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!deleted.contains(mainIds[i])) {
+                main[count++] = i;
+            }
+        }
+        return merge(main, count, sortedDelta(minPrice, maxPrice, book -> true), true, Integer.MAX_VALUE);
+    }
+
+    // Upper bound on the number of books within [minPrice, maxPrice], without walking them
+    int estimateRange(double minPrice, double maxPrice) {
+        return lowerBound(Math.nextUp(maxPrice)) - lowerBound(minPrice) + deltaSize;
+    }
+
+    List<Book> cheapest(int k, Predicate<Book> filter) {
+        int[] main = new int[Math.min(k, mainIds.length)];
+        int count = 0;
+        for (int i = 0; i < mainIds.length && count < main.length; i++) {
+            if (!deleted.contains(mainIds[i]) && filter.test(mainBooks[i])) {
+                main[count++] = i;
+            }
+        }
+        return merge(main, count, sortedDelta(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, filter), true, k);
+    }
+
+    List<Book> mostExpensive(int k, Predicate<Book> filter) {
+        int[] main = new int[Math.min(k, mainIds.length)];
+        int count = 0;
+        for (int i = mainIds.length - 1; i >= 0 && count < main.length; i--) {
+            if (!deleted.contains(mainIds[i]) && filter.test(mainBooks[i])) {
+                main[count++] = i;
+            }
+        }
+        int[] delta = sortedDelta(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, filter);
+        for (int i = 0, j = delta.length - 1; i < j; i++, j--) {
+            int swap = delta[i];
+            delta[i] = delta[j];
+            delta[j] = swap;
+        }
+        return merge(main, count, delta, false, k);
+    }
+
+    // Positions in the delta that pass the filters, in (price, id) order
+    private int[] sortedDelta(double minPrice, double maxPrice, Predicate<Book> filter) {
+        int[] positions = new int[deltaSize];
+        int count = 0;
+        for (int i = 0; i < deltaSize; i++) {
+            if (deltaPrices[i] >= minPrice && deltaPrices[i] <= maxPrice && filter.test(deltaBooks[i])) {
+                positions[count++] = i;
+            }
+        }
+        return sortPositions(positions, count);
+    }
+
+    // Merges main-run positions with delta positions, both already in the requested direction
+    private List<Book> merge(int[] main, int mainCount, int[] delta, boolean ascending, int limit) {
+        List<Book> result = new ArrayList<>(Math.min(limit, mainCount + delta.length));
+        int m = 0;
+        int d = 0;
+        while (result.size() < limit && (m < mainCount || d < delta.length)) {
+            boolean takeMain;
+            if (d == delta.length) {
+                takeMain = true;
+            } else if (m == mainCount) {
+                takeMain = false;
+            } else {
+                int order = compare(mainPrices[main[m]], mainIds[main[m]], deltaPrices[delta[d]], deltaIds[delta[d]]);
+                takeMain = ascending ? order <= 0 : order >= 0;
+            }
+            result.add(takeMain ? mainBooks[main[m++]] : deltaBooks[delta[d++]]);
+        }
+        return result;
+    }
+
+    // Sorts delta positions by (price, id) with a merge sort on the int positions, so nothing is boxed
+    private int[] sortPositions(int[] positions, int count) {
+        int[] sorted = Arrays.copyOf(positions, count);
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, count);
+                int i = low;
+                int j = middle;
+                int n = low;
+                while (i < middle && j < high) {
+                    buffer[n++] = compare(deltaPrices[sorted[j]], deltaIds[sorted[j]],
+                            deltaPrices[sorted[i]], deltaIds[sorted[i]]) < 0 ? sorted[j++] : sorted[i++];
+                }
+                while (i < middle) {
+                    buffer[n++] = sorted[i++];
+                }
+                while (j < high) {
+                    buffer[n++] = sorted[j++];
+                }
+                System.arraycopy(buffer, low, sorted, low, high - low);
+            }
+        }
+        return sorted;
+    }
+
+    private void compactIfNeeded() {
+        if (deltaSize + deleted.size() <= Math.max(MIN_DELTA, Math.min(MAX_DELTA, mainIds.length / 16))) {
+            return;
+        }
+        int live = mainIds.length - deleted.size() + deltaSize;
+        double[] prices = new double[live];
+        int[] ids = new int[live];
+        Book[] books = new Book[live];
+        int[] order = new int[deltaSize];
+        for (int i = 0; i < deltaSize; i++) {
+            order[i] = i;
+        }
+        order = sortPositions(order, deltaSize);
+
+        // Both inputs are sorted, so the new run is a single linear merge
+        int n = 0;
+        int d = 0;
+        for (int i = 0; i < mainIds.length; i++) {
+            if (deleted.contains(mainIds[i])) {
+                continue;
+            }
+            while (d < deltaSize && compare(deltaPrices[order[d]], deltaIds[order[d]], mainPrices[i], mainIds[i]) < 0) {
+                int position = order[d++];
+                prices[n] = deltaPrices[position];
+                ids[n] = deltaIds[position];
+                books[n++] = deltaBooks[position];
+            }
+            prices[n] = mainPrices[i];
+            ids[n] = mainIds[i];
+            books[n++] = mainBooks[i];
+        }
+        while (d < deltaSize) {
+            int position = order[d++];
+            prices[n] = deltaPrices[position];
+            ids[n] = deltaIds[position];
+            books[n++] = deltaBooks[position];
+        }
+
+        mainPrices = prices;
+        mainIds = ids;
+        mainBooks = books;
+        deleted.clear();
+        Arrays.fill(deltaBooks, 0, deltaSize, null);
+        deltaSize = 0;
+    }
+
+    private int lowerBound(double price) {
+        int low = 0;
+        int high = mainPrices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mainPrices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(double priceA, int idA, double priceB, int idB) {
+        int order = Double.compare(priceA, priceB);
+        return order != 0 ? order : Integer.compare(idA, idB);
+    }
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+// A user's purchased books, in purchase order, plus a primitive set of their IDs so that contains() -
+// the ownership check behind every review - is a hash probe instead of a scan of the whole history.
+// Books get an ID when they are added, even if they were never cataloged. Thread-safe like
+// Collections.synchronizedList: every method locks the list, iteration should too.
+final class PurchaseHistory extends AbstractList<Book> implements RandomAccess {
+    private final ArrayList<Book> books;
+    private final IntHashSet ownedIds;
+
+    PurchaseHistory() {
+        books = new ArrayList<>();
+        ownedIds = new IntHashSet();
+    }
+
+    PurchaseHistory(Collection<Book> purchases) {
+        books = new ArrayList<>(purchases.size());
+        ownedIds = new IntHashSet(purchases.size());
+        for (Book book : purchases) {
+            add(book);
+        }
+    }
+
+    @Override
+    public synchronized Book get(int index) {
+        return books.get(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        return books.size();
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        if (o instanceof Book) {
+            int id = ((Book) o).getId();
+            return id != 0 && ownedIds.contains(id); // IDs are unique per Book object, so this is still an identity check
+        }
+        return books.contains(o);
+    }
+
+    @Override
+    public synchronized void add(int index, Book book) {
+        books.add(index, book);
+        if (book != null) {
+            ownedIds.add(book.assignId());
+        }
+        modCount++;
+    }
+
+    // One lock acquisition for the whole batch, so readers see either none of the books or all of them
+    @Override
+    public synchronized boolean addAll(Collection<? extends Book> purchases) {
+        books.ensureCapacity(books.size() + purchases.size());
+        for (Book book : purchases) {
+            add(books.size(), book);
+        }
+        return !purchases.isEmpty();
+    }
+
+    @Override
+    public synchronized Book set(int index, Book book) {
+        Book previous = books.set(index, book);
+        if (book != null) {
+            ownedIds.add(book.assignId());
+        }
+        forgetIfGone(previous);
+        return previous;
+    }
+
+    @Override
+    public synchronized Book remove(int index) {
+        Book removed = books.remove(index);
+        forgetIfGone(removed);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        books.clear();
+        ownedIds.clear();
+        modCount++;
+    }
+
+    // Duplicate purchases share one ID in the set, so it goes only when the last copy leaves the list
+    private void forgetIfGone(Book book) {
+        if (book != null && !books.contains(book)) {
+            ownedIds.remove(book.getId());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Append-only reviews of one book, stored in fixed-size segments so growing never copies the reviews
+// themselves, only the small segment directory. Appends lock this log, so reviewing one book never
+// waits on another; reads take no lock: size is published after the review and segments it covers.
+final class ReviewLog {
+    private static final int SEGMENT_SHIFT = 5;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private volatile String[][] segments = new String[1][];
+    private volatile int size;
+
+    ReviewLog() {
+    }
+
+    ReviewLog(Collection<String> reviews) {
+        for (String review : reviews) {
+            append(review);
+        }
+    }
+
+    // Returns the review's position, which never changes
+    synchronized int append(String review) {
+        int index = size;
+        String[][] directory = segments;
+        int segment = index >>> SEGMENT_SHIFT;
+        if (segment == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[segment] == null) {
+            directory[segment] = new String[SEGMENT_SIZE];
+        }
+        directory[segment][index & SEGMENT_MASK] = review;
+        segments = directory;
+        size = index + 1; // Publishes the review to readers, who read size before segments
+        return index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+    }
+
+    String[] toArray() {
+        int count = size;
+        String[][] directory = segments;
+        String[] result = new String[count];
+        for (int i = 0; i < count; i += SEGMENT_SIZE) {
+            System.arraycopy(directory[i >>> SEGMENT_SHIFT], 0, result, i, Math.min(SEGMENT_SIZE, count - i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of a book's reviews, newest first, plus the cursor that fetches the older ones after it
+public class ReviewPage {
+    private static final String CURSOR_PREFIX = "r";
+
+    private final List<String> reviews;
+    private final int reviewCount;
+    private final String nextCursor;
+
+    ReviewPage(List<String> reviews, int reviewCount, String nextCursor) {
+        this.reviews = Collections.unmodifiableList(reviews);
+        this.reviewCount = reviewCount;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<String> getReviews() {
+        return reviews;
+    }
+
+    // Total reviews of the book when the page was read
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    // Pass to BookService.getReviewPage to continue with older reviews; null when this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    // Cursors are review positions, which never shift, so new reviews don't repeat or skip older ones
+    static String encodeCursor(int position) {
+        return CURSOR_PREFIX + position;
+    }
+
+    static int decodeCursor(String cursor) {
+        if (!cursor.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("Invalid review cursor: " + cursor);
+        }
+        try {
+            int position = Integer.parseInt(cursor.substring(CURSOR_PREFIX.length()));
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid review cursor: " + cursor);
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid review cursor: " + cursor, e);
+        }
+    }
+}
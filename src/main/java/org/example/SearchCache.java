@@ -0,0 +1,178 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of searchBook results keyed by keyword, with an optional time-to-live. BookService looks
+// results up and stores them under its read lock and invalidates under its write lock, so a stored result
+// can never be older than the last catalog change that affects it.
+// Lookups are a ConcurrentHashMap get plus a timestamp write, with no lock, and hand out the stored list
+// itself, which is unmodifiable. Eviction is approximate LRU: when a put overflows the cache, the least
+// recently used of the next SAMPLE entries of a cursor sweeping the map is dropped.
+class SearchCache {
+    static final int SAMPLE = 8;
+
+    private final int capacity;
+    private final long ttlNanos; // 0 means entries never expire
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object(); // Guards sweep; only taken by puts that overflow
+    private Iterator<Map.Entry<String, Entry>> sweep;
+    private final AtomicInteger longestKeyword = new AtomicInteger(); // No cached keyword is longer
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    SearchCache(int capacity, Duration ttl) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity cannot be negative");
+        }
+        if (ttl != null && ttl.isNegative()) {
+            throw new IllegalArgumentException("Cache TTL cannot be negative");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+    }
+
+    // The cached results, shared and unmodifiable, or null on a miss
+    List<Book> get(String keyword) {
+        if (capacity == 0) {
+            return null;
+        }
+        Entry entry = entries.get(keyword);
+        long now = System.nanoTime();
+        if (entry != null && ttlNanos != 0 && now - entry.storedAt >= ttlNanos) {
+            if (entries.remove(keyword, entry)) {
+                expirations.increment();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = now;
+        hits.increment();
+        return entry.books;
+    }
+
+    // books must be unmodifiable: get hands the same list to every caller
+    void put(String keyword, List<Book> books) {
+        if (capacity == 0) {
+            return;
+        }
+        if (keyword.length() > longestKeyword.get()) {
+            longestKeyword.accumulateAndGet(keyword.length(), Math::max);
+        }
+        entries.put(keyword, new Entry(books, System.nanoTime()));
+        if (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (entries.size() > capacity) {
+                Map.Entry<String, Entry> eldest = null;
+                for (int i = 0; i < SAMPLE; i++) {
+                    if (sweep == null || !sweep.hasNext()) {
+                        sweep = entries.entrySet().iterator(); // Start another pass
+                        if (!sweep.hasNext()) {
+                            return;
+                        }
+                    }
+                    Map.Entry<String, Entry> candidate = sweep.next();
+                    if (eldest == null || candidate.getValue().lastUsed - eldest.getValue().lastUsed < 0) {
+                        eldest = candidate;
+                    }
+                }
+                if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    // Drops every cached keyword that matches any of the given field values, i.e. every result list the
+    // book was in before a change or will be in after it. Such a keyword is a substring of one of them, so
+    // when the fields have fewer short enough substrings than the cache has entries, only those are looked up.
+    void invalidate(String title, String author, String genre) {
+        if (capacity == 0) {
+            return;
+        }
+        int longest = longestKeyword.get();
+        long substrings = substringCount(title, longest) + substringCount(author, longest)
+                + substringCount(genre, longest);
+        if (substrings < entries.size()) {
+            remove(""); // Matches everything
+            removeSubstrings(title, longest);
+            removeSubstrings(author, longest);
+            removeSubstrings(genre, longest);
+            return;
+        }
+        Iterator<String> keywords = entries.keySet().iterator();
+        while (keywords.hasNext()) {
+            String keyword = keywords.next();
+            if (title.contains(keyword) || author.contains(keyword) || genre.contains(keyword)) {
+                keywords.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    // Non-empty substrings of value no longer than maxLength
+    private static long substringCount(String value, int maxLength) {
+        long count = 0;
+        for (int length = 1; length <= Math.min(maxLength, value.length()); length++) {
+            count += value.length() - length + 1;
+        }
+        return count;
+    }
+
+    private void removeSubstrings(String value, int maxLength) {
+        for (int start = 0; start < value.length(); start++) {
+            for (int end = start + 1; end <= Math.min(value.length(), start + maxLength); end++) {
+                remove(value.substring(start, end));
+            }
+        }
+    }
+
+    private void remove(String keyword) {
+        if (entries.remove(keyword) != null) {
+            invalidations.increment();
+        }
+    }
+
+    void invalidateAll() {
+        Iterator<String> keywords = entries.keySet().iterator();
+        while (keywords.hasNext()) {
+            keywords.next();
+            keywords.remove();
+            invalidations.increment();
+        }
+    }
+
+    SearchCacheStats stats() {
+        return new SearchCacheStats(entries.size(), capacity, hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    private static final class Entry {
+        final List<Book> books;
+        final long storedAt;
+        volatile long lastUsed; // nanoTime of the last hit or the put
+
+        Entry(List<Book> books, long storedAt) {
+            this.books = books;
+            this.storedAt = storedAt;
+            this.lastUsed = storedAt;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+// Point-in-time counters of BookService's search cache, for sizing it
+public class SearchCacheStats {
+    private final int size;
+    private final int capacity;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    SearchCacheStats(int size, int capacity, long hits, long misses, long evictions, long expirations, long invalidations) {
+        this.size = size;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // Entries dropped because the cache was full
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Entries dropped because they outlived the TTL
+    public long getExpirations() {
+        return expirations;
+    }
+
+    // Entries dropped because a catalog change affected their results
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCacheStats{size=" + size + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", expirations=" + expirations + ", invalidations=" + invalidations + "}";
+    }
+}
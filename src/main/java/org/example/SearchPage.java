@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of ranked search results, plus the cursor that fetches the page after it
+public class SearchPage {
+    private static final String CURSOR_PREFIX = "c";
+
+    private final List<Book> books;
+    private final String nextCursor;
+
+    SearchPage(List<Book> books, String nextCursor) {
+        this.books = Collections.unmodifiableList(books);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    // Pass to BookService.searchBookPage to continue after this page; null when this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    static String encodeCursor(long key) {
+        return CURSOR_PREFIX + Long.toHexString(key);
+    }
+
+    static long decodeCursor(String cursor) {
+        if (!cursor.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+        }
+        try {
+            return Long.parseUnsignedLong(cursor.substring(CURSOR_PREFIX.length()), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + cursor, e);
+        }
+    }
+}
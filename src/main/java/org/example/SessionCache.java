@@ -0,0 +1,108 @@
+package org.example;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Session tokens issued by UserService.openSession, so authenticated calls after a login cost a map lookup
+// instead of a password hash. Bounded and concurrent: a session lives for a fixed TTL from when it was
+// opened, so opening order is also expiry order, and a FIFO queue of sessions both expires them and, past
+// capacity, evicts the oldest. A session remembers its user's session epoch, which UserService bumps whenever
+// the username or password changes, so a profile update revokes every token at once and changing back later
+// does not bring them back.
+final class SessionCache {
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Session> byAge = new ConcurrentLinkedQueue<>(); // Oldest first, may hold closed ones
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private static final class Session {
+        final String token;
+        final User user;
+        final int epoch; // The user's session epoch when the session was opened
+        final long expiresAt;
+
+        Session(String token, User user, int epoch, long expiresAt) {
+            this.token = token;
+            this.user = user;
+            this.epoch = epoch;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isCurrent(long now) {
+            return now - expiresAt < 0 && user.getSessionEpoch() == epoch;
+        }
+    }
+
+    SessionCache(int capacity, Duration ttl) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Session capacity must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Session TTL must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // epoch is the user's session epoch from before the login was checked
+    String open(User user, int epoch) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.nanoTime();
+        Session session = new Session(token, user, epoch, now + ttlNanos);
+        sessions.put(token, session);
+        byAge.add(session);
+        queued.incrementAndGet();
+        evict(now);
+        return token;
+    }
+
+    // The session's user, or null if the token is unknown, expired, closed or revoked
+    User validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        if (!session.isCurrent(System.nanoTime())) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session.user;
+    }
+
+    boolean close(String token) {
+        return token != null && sessions.remove(token) != null; // Its queue entry goes when it reaches the head
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    // Drops sessions from the old end while they are expired or the cache is over capacity. The queue may
+    // also hold sessions closed early; it is trimmed once those make it twice the capacity.
+    private void evict(long now) {
+        while (true) {
+            Session oldest = byAge.peek();
+            if (oldest == null || (now - oldest.expiresAt < 0 && sessions.size() <= capacity
+                    && queued.get() <= 2 * capacity)) {
+                return;
+            }
+            if (byAge.remove(oldest)) {
+                queued.decrementAndGet();
+                sessions.remove(oldest.token, oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+// A catalog partitioned across several BookServices by a hash of the book ID. Writes and per-book operations
+// go to the one shard that owns the book; searches fan out to every shard as fork-join tasks and the partial
+// results are merged, so one query can use as many cores as there are shards and each shard's indexes stay
+// a fraction of the catalog's size. Each shard keeps its own lock, so writes to different shards never
+// contend. Results come back ordered by book ID, which is the order books were first cataloged in.
+public class ShardedBookService {
+    private static final Comparator<Book> ID_ORDER = Comparator.comparingInt(Book::getId);
+    private static final Comparator<Book> PRICE_ORDER =
+            Comparator.comparingDouble(Book::getPrice).thenComparingInt(Book::getId);
+
+    private final BookService[] shards;
+    private final ForkJoinPool pool;
+    private volatile Metrics metrics = Metrics.DISABLED;
+
+    public ShardedBookService(int shardCount) {
+        this(shardCount, 1024, ForkJoinPool.commonPool());
+    }
+
+    // searchCacheSize is per shard, as in BookService; pool runs the fan-out of every search
+    public ShardedBookService(int shardCount, int searchCacheSize, ForkJoinPool pool) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        shards = new BookService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BookService(searchCacheSize, null);
+        }
+        this.pool = pool;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        return shardOf(book.assignId()).addBook(book);
+    }
+
+    // Splits the books by shard and adds each shard's part in parallel; returns the ones added, in order
+    public List<Book> addBooks(Collection<Book> books) {
+        List<List<Book>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (Book book : books) {
+            if (book == null) {
+                throw new IllegalArgumentException("Book cannot be null");
+            }
+            parts.get(shardIndex(book.assignId())).add(book);
+        }
+        List<Book> added = scatter(i -> shards[i].addBooks(parts.get(i)), ShardedBookService::concat, false);
+        added.sort(ID_ORDER);
+        return added;
+    }
+
+    public boolean removeBook(Book book) {
+        return book != null && book.getId() != 0 && shardOf(book.getId()).removeBook(book);
+    }
+
+    public Book getBook(int id) {
+        return shardOf(id).getBook(id);
+    }
+
+    // Counts are map lookups, cheaper to add up in turn than to fan out
+    public int getBookCount() {
+        int count = 0;
+        for (BookService shard : shards) {
+            count += shard.getBookCount();
+        }
+        return count;
+    }
+
+    public List<Book> searchBook(String keyword) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        // Shards hand out their cached, unmodifiable lists; concat copies them, but one shard's must be copied here
+        List<Book> found = scatter(i -> shards[i].cachedSearch(keyword), ShardedBookService::concat, true);
+        List<Book> result = sorted(shards.length == 1 ? new ArrayList<>(found) : found, ID_ORDER);
+        metrics.record(Metrics.Operation.SEARCH_BOOK, result.isEmpty() ? Metrics.Outcome.NO_RESULTS : Metrics.Outcome.SUCCESS, start);
+        return result;
+    }
+
+    public List<Book> fuzzySearchBook(String query) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        List<Book> result = sorted(scatter(i -> shards[i].fuzzySearch(query, FuzzyIndex.MAX_EDITS), ShardedBookService::concat, true),
+                ID_ORDER);
+        metrics.record(Metrics.Operation.FUZZY_SEARCH_BOOK, result.isEmpty() ? Metrics.Outcome.NO_RESULTS : Metrics.Outcome.SUCCESS, start);
+        return result;
+    }
+
+    // Books priced between minPrice and maxPrice (inclusive), cheapest first
+    public List<Book> findBooksByPriceRange(double minPrice, double maxPrice) {
+        return sorted(scatter(i -> shards[i].findBooksByPriceRange(minPrice, maxPrice), ShardedBookService::concat, true),
+                PRICE_ORDER);
+    }
+
+    // Each shard returns its own cheapest count books, and the overall cheapest are among them
+    public List<Book> findCheapestBooks(int count) {
+        BookService.checkCount(count); // Before fanning out, so the caller gets it unwrapped
+        List<Book> candidates = sorted(scatter(i -> shards[i].findCheapestBooks(count), ShardedBookService::concat, true),
+                PRICE_ORDER);
+        return candidates.size() > count ? new ArrayList<>(candidates.subList(0, count)) : candidates;
+    }
+
+    public int countBooksInGenre(String genre) {
+        int count = 0;
+        for (BookService shard : shards) {
+            count += shard.countBooksInGenre(genre);
+        }
+        return count;
+    }
+
+    public int countBooksByAuthor(String author) {
+        int count = 0;
+        for (BookService shard : shards) {
+            count += shard.countBooksByAuthor(author);
+        }
+        return count;
+    }
+
+    public boolean purchaseBook(User user, Book book) {
+        return book != null && book.getId() != 0 && shardOf(book.getId()).purchaseBook(user, book);
+    }
+
+    public boolean addBookReview(User user, Book book, String review) {
+        return book != null && book.getId() != 0 && shardOf(book.getId()).addBookReview(user, book, review);
+    }
+
+    // Each operation is recorded once: per-book operations by the shard that runs them, searches here, across
+    // the whole fan-out, so their counts and latencies are those callers see
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        for (BookService shard : shards) {
+            shard.setMetrics(metrics);
+        }
+    }
+
+    int shardIndex(int id) {
+        return Math.floorMod(IntHashSet.mix(id), shards.length); // Spread sequential IDs evenly
+    }
+
+    BookService shardOf(int id) {
+        return shards[shardIndex(id)];
+    }
+
+    // Runs the query on every shard as a tree of fork-join tasks and merges the results pairwise. reads says
+    // the query only takes the shard's read lock.
+    private <T> T scatter(IntFunction<T> query, BinaryOperator<T> merge, boolean reads) {
+        if (shards.length == 1) {
+            return query.apply(0); // Nothing to fan out
+        }
+        return pool.invoke(new Fanout<>(query, merge, reads, 0, shards.length));
+    }
+
+    private final class Fanout<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final IntFunction<T> query; // Runs on the shard with the given index
+        private final BinaryOperator<T> merge;
+        private final boolean reads;
+        private final int from;
+        private final int to;
+
+        Fanout(IntFunction<T> query, BinaryOperator<T> merge, boolean reads, int from, int to) {
+            this.query = query;
+            this.merge = merge;
+            this.reads = reads;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from == 1) {
+                ShardCall<T> call = new ShardCall<>(query, reads, from);
+                try {
+                    ForkJoinPool.managedBlock(call);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Not thrown: the shard locks wait uninterruptibly
+                    throw new IllegalStateException("Interrupted while querying shard " + from, e);
+                }
+                return call.result;
+            }
+            int middle = (from + to) >>> 1;
+            Fanout<T> left = new Fanout<>(query, merge, reads, from, middle);
+            left.fork();
+            T right = new Fanout<>(query, merge, reads, middle, to).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    // One shard's part of a fan-out. It can wait for the shard's lock, so the pool runs it as a blocker and may
+    // start a spare worker meanwhile rather than lose this one. A read first tries the read lock and only counts
+    // as blocking when a writer holds it; a write always does.
+    private final class ShardCall<T> implements ForkJoinPool.ManagedBlocker {
+        private final IntFunction<T> query;
+        private final boolean reads;
+        private final int shard;
+        T result;
+        private boolean done;
+
+        ShardCall(IntFunction<T> query, boolean reads, int shard) {
+            this.query = query;
+            this.reads = reads;
+            this.shard = shard;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!done && reads) {
+                Lock readLock = shards[shard].readLock();
+                if (readLock.tryLock()) {
+                    try {
+                        result = query.apply(shard); // Takes the read lock again, which a holder always gets
+                        done = true;
+                    } finally {
+                        readLock.unlock();
+                    }
+                }
+            }
+            return done;
+        }
+
+        @Override
+        public boolean block() {
+            if (!done) {
+                result = query.apply(shard);
+                done = true;
+            }
+            return true;
+        }
+    }
+
+    private static List<Book> concat(List<Book> a, List<Book> b) {
+        List<Book> result = new ArrayList<>(a.size() + b.size());
+        result.addAll(a);
+        result.addAll(b);
+        return result;
+    }
+
+    private static List<Book> sorted(List<Book> books, Comparator<Book> order) {
+        books.sort(order);
+        return books;
+    }
+}
@@ -0,0 +1,279 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Compacted image of both services as of one LSN. Written to a temporary file and renamed into place,
+// so a crash mid-write leaves the previous snapshot untouched; read back through memory-mapped windows.
+// The rename is made durable before write returns, since checkpoints delete what the snapshot replaces.
+final class SnapshotFile {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final int MAGIC = 0x42534E50;
+    private static final int VERSION = 1; // Files of any other version are refused
+    private static final long WINDOW_BYTES = 1L << 30; // A single mapping cannot exceed 2 GB
+
+    // What a checkpoint copies out of a book while mutations are paused
+    static final class BookState {
+        final int id;
+        final String title;
+        final String author;
+        final String genre;
+        final double price;
+        final int stock;
+        final String[] reviews;
+
+        BookState(Book book) {
+            this.id = book.getId();
+            this.title = book.getTitle();
+            this.author = book.getAuthor();
+            this.genre = book.getGenre();
+            this.price = book.getPrice();
+            this.stock = book.getStock();
+            ReviewLog log = book.reviewLog();
+            this.reviews = log == null ? new String[0] : log.toArray();
+        }
+    }
+
+    // What a checkpoint copies out of a user while mutations are paused
+    static final class UserState {
+        final String username;
+        final String password;
+        final String email;
+        final long balanceCents;
+        final int[] purchasedBookIds;
+
+        UserState(User user) {
+            this.username = user.getUsername();
+            this.password = user.getPassword();
+            this.email = user.getEmail();
+            this.balanceCents = user.getBalanceCents();
+            this.purchasedBookIds = user.getPurchasedBooks().stream().mapToInt(Book::getId).toArray();
+        }
+    }
+
+    private SnapshotFile() {
+    }
+
+    // retiredBooks are books no longer cataloged that users bought; they are restored into the histories only
+    static Path write(Path directory, long lsn, List<BookState> books, List<BookState> retiredBooks,
+                      List<UserState> users) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            writeBooks(out, books);
+            writeBooks(out, retiredBooks);
+            out.writeInt(users.size());
+            for (UserState user : users) {
+                Mutation.writeString(out, user.username);
+                Mutation.writeString(out, user.password);
+                Mutation.writeString(out, user.email);
+                out.writeLong(user.balanceCents);
+                out.writeInt(user.purchasedBookIds.length);
+                for (int bookId : user.purchasedBookIds) {
+                    out.writeInt(bookId);
+                }
+            }
+            out.flush();
+            long crc = checked.getChecksum().getValue();
+            file.write(ByteBuffer.allocate(Long.BYTES).putLong(crc).array()); // Trailer, outside the checksum
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel parent = FileChannel.open(directory, StandardOpenOption.READ)) {
+            parent.force(true); // The rename lives in the directory, not the file
+        }
+        return target;
+    }
+
+    static Path latest(Path directory) throws IOException {
+        Path latest = null;
+        for (Path file : snapshots(directory)) {
+            if (latest == null || lsnOf(file) > lsnOf(latest)) {
+                latest = file;
+            }
+        }
+        return latest;
+    }
+
+    static void deleteOlderThan(Path directory, long lsn) throws IOException {
+        for (Path file : snapshots(directory)) {
+            if (lsnOf(file) < lsn) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Loads the snapshot into empty services and returns the LSN it was taken at
+    static long load(Path file, BookService bookService, UserService userService) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            verifyChecksum(file, channel);
+            MappedInput in = new MappedInput(channel, channel.size() - Long.BYTES);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long lsn = in.readLong();
+
+            int bookCount = in.readInt();
+            for (int i = 0; i < bookCount; i++) {
+                bookService.addBook(readBook(in));
+            }
+            Map<Integer, Book> retiredBooks = new HashMap<>();
+            int retiredCount = in.readInt();
+            for (int i = 0; i < retiredCount; i++) {
+                Book book = readBook(in);
+                retiredBooks.put(book.getId(), book);
+            }
+
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                User user = new User(in.readString(), in.readString(), in.readString());
+                user.credit(in.readLong());
+                int purchaseCount = in.readInt();
+                for (int j = 0; j < purchaseCount; j++) {
+                    int id = in.readInt();
+                    Book book = bookService.getBook(id);
+                    if (book == null) {
+                        book = retiredBooks.get(id); // Removed from the catalog since
+                    }
+                    if (book == null) {
+                        throw new IOException("Snapshot history refers to unknown book " + id + ": " + file);
+                    }
+                    user.getPurchasedBooks().add(book);
+                }
+                userService.restoreUser(user);
+            }
+            return lsn;
+        }
+    }
+
+    private static void writeBooks(DataOutputStream out, List<BookState> books) throws IOException {
+        out.writeInt(books.size());
+        for (BookState book : books) {
+            out.writeInt(book.id);
+            Mutation.writeString(out, book.title);
+            Mutation.writeString(out, book.author);
+            Mutation.writeString(out, book.genre);
+            out.writeDouble(book.price);
+            out.writeInt(book.stock);
+            out.writeInt(book.reviews.length);
+            for (String review : book.reviews) {
+                Mutation.writeString(out, review);
+            }
+        }
+    }
+
+    private static Book readBook(MappedInput in) throws IOException {
+        int id = in.readInt();
+        Book book = new Book(in.readString(), in.readString(), in.readString(), in.readDouble());
+        book.restoreId(id);
+        book.restoreStock(in.readInt());
+        int reviewCount = in.readInt();
+        for (int j = 0; j < reviewCount; j++) {
+            book.addReview(in.readString());
+        }
+        return book;
+    }
+
+    private static void verifyChecksum(Path file, FileChannel channel) throws IOException {
+        long bodyBytes = channel.size() - Long.BYTES;
+        if (bodyBytes < 0) {
+            throw new IOException("Truncated snapshot file: " + file);
+        }
+        CRC32 crc = new CRC32();
+        for (long offset = 0; offset < bodyBytes; offset += WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_BYTES, bodyBytes - offset)));
+        }
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, bodyBytes, Long.BYTES);
+        if (trailer.getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+    }
+
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long lsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Sequential reader over a file mapped one window at a time
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInput(FileChannel channel, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_BYTES, size));
+        }
+
+        int readInt() throws IOException {
+            return ensure(Integer.BYTES).getInt();
+        }
+
+        long readLong() throws IOException {
+            return ensure(Long.BYTES).getLong();
+        }
+
+        double readDouble() throws IOException {
+            return ensure(Double.BYTES).getDouble();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            ensure(length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                windowStart += window.position();
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_BYTES, size - windowStart));
+                if (window.remaining() < bytes) {
+                    throw new EOFException("Snapshot ends in the middle of a record");
+                }
+            }
+            return window;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Trigram index of one CatalogSnapshot, by slot, built from immutable segments that later versions share.
+// Publishing a version indexes only the slots written since the previous one, as a new segment in front of the
+// old ones; whenever a segment has grown to half the size of the one behind it the two are rebuilt as one,
+// so there are O(log n) segments and each slot is reindexed O(log n) times in all. Older segments may still
+// list a slot under what it used to contain, so lookups return candidates that the snapshot then checks
+// against its own entries: every slot that matches is listed under its current fields in the newest segment
+// that covers it, and stale listings fail the check.
+final class SnapshotIndex {
+    static final SnapshotIndex EMPTY = new SnapshotIndex(new Segment[0]);
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final Segment[] segments; // Newest first
+
+    private static final class Segment {
+        final int[] slots; // Slots indexed here, ascending
+        final Map<String, int[]> postings; // Trigram -> ascending slots whose fields contain it
+
+        Segment(int[] slots, Map<String, int[]> postings) {
+            this.slots = slots;
+            this.postings = postings;
+        }
+
+        // Indexes the given slots (ascending) as they are in the snapshot; removed ones are left out
+        static Segment build(int[] slots, CatalogSnapshot snapshot) {
+            Map<String, Posting> building = new HashMap<>();
+            int[] live = new int[slots.length];
+            int count = 0;
+            for (int slot : slots) {
+                CatalogSnapshot.Entry entry = snapshot.entry(slot);
+                if (entry == null) {
+                    continue;
+                }
+                live[count++] = slot;
+                for (String gram : TrigramIndex.grams(entry.title, entry.author, entry.genre)) {
+                    building.computeIfAbsent(gram, g -> new Posting()).add(slot);
+                }
+            }
+            Map<String, int[]> postings = new HashMap<>(building.size() * 4 / 3 + 1);
+            building.forEach((gram, posting) -> postings.put(gram, Arrays.copyOf(posting.slots, posting.size)));
+            return new Segment(Arrays.copyOf(live, count), postings);
+        }
+    }
+
+    // Slots of one trigram while a segment is built; appended in ascending order
+    private static final class Posting {
+        int[] slots = new int[2];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private SnapshotIndex(Segment[] segments) {
+        this.segments = segments;
+    }
+
+    // Indexes every slot of the snapshot from scratch
+    static SnapshotIndex build(CatalogSnapshot snapshot) {
+        int[] slots = new int[snapshot.length()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+        return new SnapshotIndex(new Segment[]{Segment.build(slots, snapshot)});
+    }
+
+    // The index of a snapshot that differs from this index's only in the given slots (ascending)
+    SnapshotIndex with(int[] changed, CatalogSnapshot snapshot) {
+        if (changed.length == 0) {
+            return this;
+        }
+        List<Segment> result = new ArrayList<>(segments.length + 1);
+        Segment newest = Segment.build(changed, snapshot);
+        int next = 0;
+        while (next < segments.length && newest.slots.length * 2 >= segments[next].slots.length) {
+            newest = Segment.build(union(newest.slots, segments[next].slots), snapshot); // Merge the two
+            next++;
+        }
+        result.add(newest);
+        result.addAll(Arrays.asList(segments).subList(next, segments.length));
+        return new SnapshotIndex(result.toArray(new Segment[0]));
+    }
+
+    // Ascending slots that may contain the keyword, which must be at least GRAM_LENGTH long. Every slot whose
+    // entry contains it is included; callers check the rest against the entries.
+    int[] candidates(String keyword) {
+        String[] grams = TrigramIndex.grams(keyword).toArray(new String[0]);
+        int[] result = NO_SLOTS;
+        for (Segment segment : segments) {
+            int[][] lists = new int[grams.length][];
+            boolean all = true;
+            for (int i = 0; i < grams.length && all; i++) {
+                lists[i] = segment.postings.get(grams[i]);
+                all = lists[i] != null;
+            }
+            if (all) {
+                result = union(result, intersect(lists));
+            }
+        }
+        return result;
+    }
+
+    // Slots in every list, driven by the shortest one
+    private static int[] intersect(int[][] lists) {
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = new int[lists[0].length];
+        int count = 0;
+        for (int slot : lists[0]) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.length && inAll; i++) {
+                inAll = Arrays.binarySearch(lists[i], slot) >= 0;
+            }
+            if (inAll) {
+                result[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Merges two ascending arrays, dropping duplicates
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[count++] = next;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Keeps the k books with the smallest keys seen so far in a primitive binary max-heap, so memory is
+// bounded by k no matter how many books are offered. The heap grows as books arrive rather than being
+// sized for k up front, so a huge k costs no more than the matches there actually are. Not thread-safe.
+final class TopK {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private long[] keys;
+    private Book[] books;
+    private int size;
+
+    TopK(int k) {
+        this.k = k;
+        keys = new long[Math.min(k, INITIAL_CAPACITY)];
+        books = new Book[keys.length];
+    }
+
+    void offer(long key, Book book) {
+        if (k == 0) {
+            return;
+        }
+        if (size < k) {
+            if (size == keys.length) {
+                int capacity = (int) Math.min(k, 2L * size);
+                keys = Arrays.copyOf(keys, capacity);
+                books = Arrays.copyOf(books, capacity);
+            }
+            keys[size] = key;
+            books[size] = book;
+            siftUp(size++);
+        } else if (key < keys[0]) { // Beats the largest key kept so far
+            keys[0] = key;
+            books[0] = book;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The key of the last book drainSorted would return; only valid while the heap is not empty
+    long largestKey() {
+        return keys[0];
+    }
+
+    // Empties the heap and returns its books ordered by ascending key
+    List<Book> drainSorted() {
+        Book[] sorted = new Book[size];
+        for (int i = size - 1; i >= 0; i--) { // The root is always the largest remaining key
+            sorted[i] = books[0];
+            size--;
+            keys[0] = keys[size];
+            books[0] = books[size];
+            books[size] = null;
+            siftDown(0);
+        }
+        List<Book> result = new ArrayList<>(sorted.length);
+        for (Book book : sorted) {
+            result.add(book);
+        }
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= keys[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && keys[left] > keys[largest]) {
+                largest = left;
+            }
+            if (right < size && keys[right] > keys[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        Book book = books[a];
+        books[a] = books[b];
+        books[b] = book;
+    }
+}
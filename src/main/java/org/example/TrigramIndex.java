@@ -0,0 +1,141 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// Inverted index from every 3-character substring of a book's title, author and genre to the books containing it.
+// A keyword can only be a substring of a field if all of its trigrams occur in that field, so intersecting the
+// keyword's posting lists yields a candidate set that is then verified with the same check as the linear scan.
+// Posting lists hold book IDs in primitive sets, a few bytes per entry instead of a HashMap node per book and
+// trigram, which made them the bulk of a catalog's heap; IDs are turned back into books through the catalog.
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final IntFunction<Book> books; // The catalog, by ID
+    private final Map<String, IntHashSet> postings = new HashMap<>();
+    private final Map<Book, Long> sequence = new IdentityHashMap<>(); // Catalog order, so results match the scan
+    private long nextSequence;
+
+    TrigramIndex(IntFunction<Book> books) {
+        this.books = books;
+    }
+
+    void add(Book book) {
+        sequence.put(book, nextSequence++);
+        for (String gram : grams(book.getTitle(), book.getAuthor(), book.getGenre())) {
+            addPosting(gram, book);
+        }
+    }
+
+    void remove(Book book) {
+        sequence.remove(book);
+        for (String gram : grams(book.getTitle(), book.getAuthor(), book.getGenre())) {
+            removePosting(gram, book);
+        }
+    }
+
+    void update(Book book, Book.Field field, Object oldValue) {
+        String oldTitle = field == Book.Field.TITLE ? (String) oldValue : book.getTitle();
+        String oldAuthor = field == Book.Field.AUTHOR ? (String) oldValue : book.getAuthor();
+        String oldGenre = field == Book.Field.GENRE ? (String) oldValue : book.getGenre();
+        Set<String> oldGrams = grams(oldTitle, oldAuthor, oldGenre);
+        Set<String> newGrams = grams(book.getTitle(), book.getAuthor(), book.getGenre());
+
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                removePosting(gram, book);
+            }
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                addPosting(gram, book);
+            }
+        }
+    }
+
+    List<Book> search(String keyword) {
+        List<Book> result = new ArrayList<>();
+        forEachMatch(keyword, result::add);
+        result.sort(Comparator.comparingLong(sequence::get));
+        return result;
+    }
+
+    // Hands every matching book to the action, in no particular order, without collecting them
+    void forEachMatch(String keyword, Consumer<Book> action) {
+        Set<String> keywordGrams = grams(keyword);
+        List<IntHashSet> lists = new ArrayList<>(keywordGrams.size());
+        for (String gram : keywordGrams) {
+            IntHashSet posting = postings.get(gram);
+            if (posting == null) {
+                return; // Some trigram occurs in no book at all
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(IntHashSet::size)); // Drive the intersection from the rarest trigram
+
+        for (int id : lists.get(0).toArray()) {
+            if (inAll(lists, id)) {
+                Book candidate = books.apply(id);
+                if (candidate != null && BookService.matches(candidate, keyword)) { // Null: no longer cataloged
+                    action.accept(candidate);
+                }
+            }
+        }
+    }
+
+    // Position of the book in catalog order
+    long sequenceOf(Book book) {
+        return sequence.get(book);
+    }
+
+    // Upper bound on the number of books search() would return: the size of the rarest posting list
+    int estimateCandidates(String keyword) {
+        int smallest = Integer.MAX_VALUE;
+        for (String gram : grams(keyword)) {
+            IntHashSet posting = postings.get(gram);
+            smallest = Math.min(smallest, posting == null ? 0 : posting.size());
+        }
+        return smallest;
+    }
+
+    private static boolean inAll(List<IntHashSet> lists, int id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addPosting(String gram, Book book) {
+        postings.computeIfAbsent(gram, k -> new IntHashSet(4)).add(book.getId());
+    }
+
+    private void removePosting(String gram, Book book) {
+        IntHashSet posting = postings.get(gram);
+        if (posting != null) {
+            posting.remove(book.getId());
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    static Set<String> grams(String... values) {
+        Set<String> grams = new HashSet<>();
+        for (String value : values) {
+            for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM_LENGTH));
+            }
+        }
+        return grams;
+    }
+}
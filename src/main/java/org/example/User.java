@@ -1,14 +1,20 @@
 package org.example;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class User {
-    private String username;
-    private String password;
-    private String email;
+    private static final AtomicLongFieldUpdater<User> BALANCE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(User.class, "balanceCents");
 
-    private List<Book> purchasedBooks = new ArrayList<>();
+    private volatile String username;
+    private volatile String password;
+    private volatile String email;
+
+    private volatile List<Book> purchasedBooks = new PurchaseHistory(); // Thread-safe, with a constant-time contains()
+    private volatile long balanceCents; // Whole cents, so debits never accumulate rounding errors
+    private volatile int sessionEpoch; // Sessions opened before the last change of username or password are revoked
+    private volatile UserService service; // Set once registered, so a replaced history gets journaled
 
 
     public User(String username, String password, String email) {
@@ -21,7 +27,7 @@ public class User {
         this.username = username;
         this.password = password;
         this.email = email;
-        this.purchasedBooks = purchasedBooks;
+        this.purchasedBooks = new PurchaseHistory(purchasedBooks);
     }
 
     public String getUsername() {
@@ -48,11 +54,58 @@ public class User {
         this.email = email;
     }
 
+    // Funds are added through UserService.deposit and spent through BookService.purchaseBook
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    // Takes the amount if the balance covers it, with a CAS so concurrent purchases never overdraw
+    boolean debit(long cents) {
+        while (true) {
+            long current = balanceCents;
+            if (current < cents) {
+                return false;
+            }
+            if (BALANCE_UPDATER.compareAndSet(this, current, current - cents)) {
+                return true;
+            }
+        }
+    }
+
+    void credit(long cents) {
+        BALANCE_UPDATER.addAndGet(this, cents);
+    }
+
+    int getSessionEpoch() {
+        return sessionEpoch;
+    }
+
+    // Called by UserService holding this user's monitor, which is what makes the increment safe
+    void revokeSessions() {
+        sessionEpoch++;
+    }
+
     public List<Book> getPurchasedBooks() {
         return purchasedBooks;
     }
 
+    // Copies the books into an indexed history, so later changes to the given list are not seen
     public void setPurchasedBooks(List<Book> purchasedBooks) {
-        this.purchasedBooks = purchasedBooks;
+        PurchaseHistory history = new PurchaseHistory(purchasedBooks);
+        UserService service = this.service;
+        if (service == null) {
+            this.purchasedBooks = history;
+        } else {
+            service.replaceHistory(this, history);
+        }
+    }
+
+    // Called by UserService: once the user is registered, and with each history it journals
+    void attach(UserService service) {
+        this.service = service;
+    }
+
+    void installHistory(List<Book> history) {
+        this.purchasedBooks = history;
     }
 }
@@ -1,47 +1,213 @@
 package org.example;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserService {
-    // A simple map to simulate a database
-    private Map<String, User> userDatabase = new HashMap<>();
+    public static final int DEFAULT_HASH_ITERATIONS = 210_000; // PBKDF2-HMAC-SHA256 rounds, on the order of 100 ms of CPU per hash
+    public static final Duration DEFAULT_SESSION_TTL = Duration.ofMinutes(30);
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
 
-    public boolean registerUser(User user) {
-        if (userDatabase.containsKey(user.getUsername())) {
-            return false; // User already exists
+    // A concurrent map to simulate a database, safe to share between request threads
+    private Map<String, User> userDatabase = new ConcurrentHashMap<>();
+    private final int hashIterations;
+    private final SessionCache sessions;
+    private volatile Journal journal = Journal.NONE; // Records mutations once persistence is attached
+    private volatile Metrics metrics = Metrics.DISABLED;
+    private volatile ChangeFeed changeFeed = ChangeFeed.DISABLED;
+
+    public UserService() {
+        this(DEFAULT_HASH_ITERATIONS, DEFAULT_SESSION_TTL, DEFAULT_MAX_SESSIONS);
+    }
+
+    // hashIterations is the PBKDF2 cost of newly stored passwords; sessions opened with openSession expire
+    // sessionTtl after they were opened, and past maxSessions the oldest ones are dropped first
+    public UserService(int hashIterations, Duration sessionTtl, int maxSessions) {
+        if (hashIterations < 1) {
+            throw new IllegalArgumentException("Hash iterations must be positive");
         }
+        this.hashIterations = hashIterations;
+        this.sessions = new SessionCache(maxSessions, sessionTtl);
+    }
+
+    // Stores only a salted hash of the user's password: once registered, getPassword() returns the hash
+    public boolean registerUser(User user) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        String credential = PasswordHash.hash(user.getPassword(), hashIterations); // Slow, so before any lock
+        return register(user, credential, metrics, start);
+    }
+
+    // Registers a user recovered from a snapshot or the log, whose password is already hashed
+    boolean restoreUser(User user) {
+        return register(user, user.getPassword(), Metrics.DISABLED, 0);
+    }
 
-        userDatabase.put(user.getUsername(), user);
+    private boolean register(User user, String credential, Metrics metrics, long start) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            synchronized (user) {
+                String password = user.getPassword();
+                user.setPassword(credential); // Before it becomes visible, so no login ever sees the plain text
+                // putIfAbsent makes the "is the name taken" check and the insert one atomic step
+                if (userDatabase.putIfAbsent(user.getUsername(), user) != null) {
+                    user.setPassword(password);
+                    metrics.record(Metrics.Operation.REGISTER_USER, Metrics.Outcome.USERNAME_TAKEN, start);
+                    return false; // User already exists
+                }
+                user.attach(this);
+                // Logged before the monitor is released, so an update of the new account is logged after it
+                lsn = changeFeed.userRegistered(journal, Mutation.registerUser(user), user);
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+        metrics.record(Metrics.Operation.REGISTER_USER, Metrics.Outcome.SUCCESS, start);
         return true; // User registered successfully
     }
 
     public User loginUser(String username, String password) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
         User user = userDatabase.get(username);
 
         if (user == null) {
+            metrics.record(Metrics.Operation.LOGIN_USER, Metrics.Outcome.USER_NOT_FOUND, start);
             return null; // User not found
         }
 
-        if (!user.getPassword().equals(password)) {
+        if (!PasswordHash.verify(password, user.getPassword())) {
+            metrics.record(Metrics.Operation.LOGIN_USER, Metrics.Outcome.WRONG_PASSWORD, start);
             return null; // Wrong password
         }
 
+        metrics.record(Metrics.Operation.LOGIN_USER, Metrics.Outcome.SUCCESS, start);
         return user; // Login successful
     }
 
+    // Issues a session token for a successful login, or returns null like loginUser. Validating the token with
+    // authenticate costs a map lookup, so only the login itself pays for hashing the password.
+    public String openSession(String username, String password) {
+        User account = userDatabase.get(username);
+        // Read before the password check, so an update that lands during the check still revokes the session
+        int epoch = account == null ? 0 : account.getSessionEpoch();
+        User user = loginUser(username, password);
+        return user == null || user != account ? null : sessions.open(user, epoch);
+    }
+
+    // The user the session belongs to, or null if the token is unknown, expired or closed, or the user's
+    // username or password changed since the session was opened
+    public User authenticate(String token) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = sessions.validate(token);
+        metrics.record(Metrics.Operation.AUTHENTICATE, user == null ? Metrics.Outcome.INVALID_SESSION : Metrics.Outcome.SUCCESS, start);
+        return user;
+    }
+
+    public boolean closeSession(String token) {
+        return sessions.close(token);
+    }
+
+    // Changing the username or password revokes every session of the user; an unchanged password is kept as is
     public boolean updateUserProfile(User user, String newUsername, String newPassword, String newEmail) {
-        // logic to update user profile
-        if (userDatabase.containsKey(newUsername)) {
-            return false; // New username is already taken
-        }
+        return update(user, newUsername, PasswordHash.rehash(newPassword, user.getPassword(), hashIterations), newEmail);
+    }
+
+    // Replays a logged profile update, whose password is already hashed
+    boolean restoreProfile(User user, String newUsername, String password, String newEmail) {
+        return update(user, newUsername, password, newEmail);
+    }
+
+    private boolean update(User user, String newUsername, String credential, String newEmail) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            synchronized (user) { // Serializes concurrent updates of the same account
+                if (userDatabase.putIfAbsent(newUsername, user) != null) {
+                    return false; // New username is already taken
+                }
 
-        user.setUsername(newUsername);
-        user.setPassword(newPassword);
-        user.setEmail(newEmail);
+                String oldUsername = user.getUsername();
+                if (!newUsername.equals(oldUsername) || !credential.equals(user.getPassword())) {
+                    user.revokeSessions();
+                }
+                user.setUsername(newUsername);
+                user.setPassword(credential);
+                user.setEmail(newEmail);
 
-        userDatabase.put(newUsername, user);
+                // Logged before the old name is freed, so a later registration of that name is logged after it
+                lsn = changeFeed.userUpdated(journal, Mutation.updateUser(oldUsername, user), oldUsername, user);
+                userDatabase.remove(oldUsername, user); // Free the old name only once the new one is claimed
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
         return true; // User profile updated successfully
     }
 
+    // Adds funds to the user's balance, in whole cents
+    public void deposit(User user, long amountCents) {
+        if (amountCents <= 0) {
+            throw new IllegalArgumentException("Deposit must be positive");
+        }
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            user.credit(amountCents);
+            lsn = journal.append(Mutation.deposit(user, amountCents));
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+    }
+
+    // User.setPurchasedBooks on a registered user: swaps the history in and journals it as one step
+    void replaceHistory(User user, List<Book> history) {
+        Journal journal = this.journal;
+        long lsn;
+        journal.beginMutation();
+        try {
+            synchronized (user) { // Logged under the name the user has, not one an update is changing
+                user.installHistory(history);
+                lsn = journal.append(Mutation.setPurchases(user));
+            }
+        } finally {
+            journal.endMutation();
+        }
+        journal.awaitDurable(lsn);
+    }
+
+    User getUser(String username) {
+        return userDatabase.get(username);
+    }
+
+    // Copy of all accounts, for checkpoints
+    List<User> users() {
+        return new ArrayList<>(userDatabase.values());
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Starts recording latencies and outcomes into metrics; pass Metrics.DISABLED to stop
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Starts publishing registrations and profile updates to feed; pass ChangeFeed.DISABLED to stop
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
 }
@@ -0,0 +1,327 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Append-only, checksummed log of mutations, split into segments named after their first LSN.
+// Appends only queue the record; a single writer thread writes everything queued since its last
+// fsync in one go (group commit), so concurrent callers share the cost of each force(). Callers wait on a
+// j.u.c. lock rather than a monitor, so a virtual thread waiting for its fsync unmounts instead of pinning
+// its carrier.
+final class WriteAheadLog implements Journal, Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 16; // payload length, CRC32 of LSN + payload, LSN
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024; // Anything larger is a torn or corrupt header
+
+    private final Path directory;
+    private final ReadWriteLock gate = new ReentrantReadWriteLock(); // Shared by mutations, exclusive for checkpoints
+    private final ReentrantLock lock = new ReentrantLock(); // Guards everything below
+    private final Condition queued = lock.newCondition(); // Something to write, or closed
+    private final Condition flushed = lock.newCondition(); // durableLsn moved, or the writer failed
+    private final Sync sync;
+    private final Thread writer;
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private FileChannel segment;
+    private long lastLsn; // Last LSN handed out
+    private long durableLsn; // Last LSN known to be on disk
+    private IOException failure;
+    private boolean closed;
+
+    // How the writer makes a batch durable; replaceable so tests can slow it down
+    interface Sync {
+        Sync FORCE = channel -> channel.force(false);
+
+        void force(FileChannel channel) throws IOException;
+    }
+
+    WriteAheadLog(Path directory, long lastLsn) throws IOException {
+        this(directory, lastLsn, Sync.FORCE);
+    }
+
+    WriteAheadLog(Path directory, long lastLsn, Sync sync) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        this.segment = openSegment(lastLsn + 1);
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void beginMutation() {
+        gate.readLock().lock();
+    }
+
+    @Override
+    public void endMutation() {
+        gate.readLock().unlock();
+    }
+
+    @Override
+    public long append(Mutation mutation) {
+        return append(mutation, null);
+    }
+
+    @Override
+    public long append(Mutation mutation, AtomicLong sequences) {
+        byte[] payload = mutation.encode();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            long lsn = ++lastLsn;
+            if (sequences != null) {
+                mutation.sequence = sequences.getAndIncrement();
+            }
+            ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            record.putInt(payload.length).putInt(checksum(lsn, payload)).putLong(lsn).put(payload).flip();
+            pending.add(record);
+            queued.signal(); // Only the writer waits on it
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The record is already queued, so keep waiting for it
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableLsn < lsn) {
+                throw new UncheckedIOException("Mutation " + lsn + " could not be made durable", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void lockExclusive() {
+        gate.writeLock().lock();
+    }
+
+    void unlockExclusive() {
+        gate.writeLock().unlock();
+    }
+
+    // Called with the gate held exclusively: flushes everything and starts a new segment, returning the
+    // LSN that a snapshot taken now corresponds to
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            awaitDurable(lastLsn);
+            segment.close();
+            segment = openSegment(lastLsn + 1);
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops the segments that only hold mutations covered by a snapshot at the given LSN
+    void deleteSegmentsUpTo(long lsn) throws IOException {
+        for (Path file : segments(directory)) {
+            if (startLsn(file) <= lsn) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            segment.close();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchLsn;
+            FileChannel channel;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        queued.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return; // Closed and fully flushed
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchLsn = lastLsn;
+                channel = segment;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                sync.force(channel); // One fsync for the whole batch
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durableLsn = batchLsn;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private FileChannel openSegment(long startLsn) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, startLsn, SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Applies every intact record after the given LSN, in order, and returns the last LSN applied.
+    // A torn or corrupt record at the end of the newest segment is a write that never completed,
+    // so it is cut off; the same damage anywhere else means the log is broken.
+    static long replay(Path directory, long afterLsn, Consumer<Mutation> apply) throws IOException {
+        List<Path> files = segments(directory);
+        long lastLsn = afterLsn;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (int i = 0; i < files.size(); i++) {
+            boolean newest = i == files.size() - 1;
+            try (FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long position = 0;
+                while (position < channel.size()) {
+                    header.clear();
+                    boolean intact = readFully(channel, header, position);
+                    int length = header.getInt(0);
+                    ByteBuffer payload = null;
+                    if (intact && length >= 0 && length <= MAX_RECORD_BYTES) {
+                        payload = ByteBuffer.allocate(length);
+                        intact = readFully(channel, payload, position + HEADER_BYTES)
+                                && header.getInt(4) == checksum(header.getLong(8), payload.array());
+                    } else {
+                        intact = false;
+                    }
+                    if (!intact) {
+                        if (!newest) {
+                            throw new IOException("Corrupt record in " + files.get(i) + " at offset " + position);
+                        }
+                        channel.truncate(position);
+                        channel.force(true);
+                        break;
+                    }
+
+                    long lsn = header.getLong(8);
+                    if (lsn > lastLsn) {
+                        if (lsn != lastLsn + 1) {
+                            throw new IOException("Gap in write-ahead log after LSN " + lastLsn);
+                        }
+                        apply.accept(Mutation.decode(payload));
+                        lastLsn = lsn;
+                    }
+                    position += HEADER_BYTES + length;
+                }
+            }
+        }
+        return lastLsn;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(startLsn(a), startLsn(b)));
+        return files;
+    }
+
+    private static long startLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int checksum(long lsn, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, lsn));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import org.junit.After; // Annotation for teardown method
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Collects in-flight futures
+import java.util.Arrays; // Builds expected result lists
+import java.util.List; // Import List interface for handling lists of books
+import java.util.concurrent.CompletableFuture; // Results of the async calls
+import java.util.concurrent.ExecutorService; // Custom executor
+import java.util.concurrent.Executors; // Creates the custom executor
+import java.util.concurrent.TimeUnit; // Timeouts
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class AsyncServicesTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private UserService userService;  // Real instance of UserService
+    private AsyncServices async;  // Facade under test, on the default executor
+    private User user;  // Test user
+    private Book book;  // Test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates the services, a facade over them, and a cataloged book.
+        bookService = new BookService(); // Create a real instance of BookService
+        userService = new UserService(); // Create a real instance of UserService
+        async = new AsyncServices(bookService, userService); // Facade with its own executor
+        user = new User("testUser", "password", "test@example.com"); // Create a test user
+        book = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        bookService.addBook(book); // Catalog the book
+    }
+
+    @After
+    public void tearDown() {
+        async.close(); // Shut down the default executor
+    }
+
+    @Test
+    public void testAsyncCallsMatchSyncResults() throws Exception {
+        // Test a full register, login, search, purchase and review flow through the facade
+
+        assertTrue(async.registerUser(user).get(5, TimeUnit.SECONDS)); // Registered
+        User loggedIn = async.loginUser("testUser", "password").get(5, TimeUnit.SECONDS); // Log in
+        assertSame(user, loggedIn); // Same account
+        assertNull(async.loginUser("testUser", "wrong").get(5, TimeUnit.SECONDS)); // Failed login completes with null
+        assertEquals(Arrays.asList(book), async.searchBook("Orwell").get(5, TimeUnit.SECONDS)); // Found
+        userService.deposit(user, 1000); // Enough for the book
+        assertTrue(async.purchaseBook(user, book).get(5, TimeUnit.SECONDS)); // Purchased, which records ownership
+        assertTrue(async.addBookReview(user, book, "Great").get(5, TimeUnit.SECONDS)); // Reviewed
+        assertEquals(Arrays.asList("Great"), book.getReviews()); // Review stored
+    }
+
+    @Test
+    public void testFailuresCompleteExceptionally() throws Exception {
+        // Test that exceptions thrown by the service surface through the future
+
+        CompletableFuture<SearchPage> page = async.searchBookPage("Orwell", "not-a-cursor", 10); // Bad cursor
+        try {
+            page.join(); // Should throw
+            fail("Expected the future to fail");
+        } catch (Exception e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException); // Original exception kept as the cause
+        }
+    }
+
+    @Test
+    public void testManyCallsInFlight() throws Exception {
+        // Test that many concurrent calls all complete
+
+        List<CompletableFuture<List<Book>>> futures = new ArrayList<>(); // In-flight searches
+        for (int i = 0; i < 2000; i++) {
+            futures.add(async.searchBook("Orwell")); // Submit without waiting
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS); // Wait for all
+        for (CompletableFuture<List<Book>> future : futures) {
+            assertEquals(Arrays.asList(book), future.join()); // Every one found the book
+        }
+    }
+
+    @Test
+    public void testCustomExecutor() throws Exception {
+        // Test that calls run on a caller-supplied executor, which the facade does not shut down
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "custom")); // Named thread
+        AsyncServices custom = new AsyncServices(bookService, userService, executor); // Facade on it
+        String thread = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).get(); // Reference
+        assertEquals("custom", thread); // Sanity check
+        assertEquals(Arrays.asList(book), custom.searchBook("1984").get(5, TimeUnit.SECONDS)); // Runs there
+        custom.close(); // Does not own the executor
+        assertFalse(executor.isShutdown()); // Still running
+        executor.shutdown(); // Clean up
+    }
+
+    @Test
+    public void testDefaultExecutorMatchesJdk() {
+        // Test that the default executor uses virtual threads exactly when the JDK has them
+
+        ExecutorService executor = AsyncServices.newDefaultExecutor(); // Default executor
+        try {
+            boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName().isEmpty(), executor).join(); // Virtual threads are unnamed
+            assertEquals(AsyncServices.virtualThreadsAvailable(), virtual); // Matches the JDK
+        } finally {
+            executor.shutdown(); // Clean up
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.Arrays; // Builds expected lists
+import java.util.Collections; // Empty expected lists
+import java.util.LinkedHashMap; // Builds expected counts
+import java.util.Map; // Facet counts
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class BookFacetTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private Book orwell1984;  // Dystopian, George Orwell
+    private Book animalFarm;  // Satire, George Orwell
+    private Book braveNewWorld;  // Dystopian, Aldous Huxley
+    private Book dystopianTitle;  // Fiction, but "Dystopian" is in its title
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs four books spread over three genres and three authors.
+        bookService = new BookService(); // Create a real instance of BookService
+        orwell1984 = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize Book objects
+        animalFarm = new Book("Animal Farm", "George Orwell", "Satire", 7.99);
+        braveNewWorld = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+        dystopianTitle = new Book("Dystopian Dreams", "Jane Doe", "Fiction", 5.99);
+        bookService.addBook(orwell1984); // Catalog them in this order
+        bookService.addBook(animalFarm);
+        bookService.addBook(braveNewWorld);
+        bookService.addBook(dystopianTitle);
+    }
+
+    @Test
+    public void testCountsAreExact() {
+        // Test that facets count exact field values only
+
+        assertEquals(2, bookService.countBooksInGenre("Dystopian")); // Not the book with it in the title
+        assertEquals(3, bookService.searchBook("Dystopian").size()); // Which searchBook does include
+        assertEquals(2, bookService.countBooksByAuthor("George Orwell")); // Both Orwell books
+        assertEquals(0, bookService.countBooksByAuthor("Orwell")); // No partial matches
+        assertEquals(0, bookService.countBooksInGenre("Romance")); // Unknown genre
+    }
+
+    @Test
+    public void testMembersInCatalogOrder() {
+        // Test the member lists
+
+        assertEquals(Arrays.asList(orwell1984, braveNewWorld), bookService.findBooksInGenre("Dystopian")); // Catalog order
+        assertEquals(Arrays.asList(orwell1984, animalFarm), bookService.findBooksByAuthor("George Orwell")); // Catalog order
+        assertEquals(Collections.emptyList(), bookService.findBooksByAuthor("Nobody")); // Unknown author
+    }
+
+    @Test
+    public void testAllCounts() {
+        // Test the full list of genres with their counts
+
+        Map<String, Integer> expected = new LinkedHashMap<>(); // Sorted by genre
+        expected.put("Dystopian", 2);
+        expected.put("Fiction", 1);
+        expected.put("Satire", 1);
+        assertEquals(expected, bookService.getGenreCounts()); // Every genre counted
+        assertEquals(3, bookService.getAuthorCounts().size()); // Three distinct authors
+    }
+
+    @Test
+    public void testFacetsFollowChanges() {
+        // Test that setters, removals and additions keep the facets current
+
+        animalFarm.setGenre("Dystopian"); // Moves between genres
+        assertEquals(3, bookService.countBooksInGenre("Dystopian")); // Gained one
+        assertFalse(bookService.getGenreCounts().containsKey("Satire")); // Emptied genres disappear
+        braveNewWorld.setAuthor("George Orwell"); // Moves between authors
+        assertEquals(3, bookService.countBooksByAuthor("George Orwell")); // Gained one
+        assertEquals(0, bookService.countBooksByAuthor("Aldous Huxley")); // Lost it
+        bookService.removeBook(orwell1984); // Removal
+        assertEquals(Arrays.asList(animalFarm, braveNewWorld), bookService.findBooksInGenre("Dystopian")); // Gone from the facet
+        orwell1984.setGenre("Satire"); // Changes to removed books are ignored
+        assertEquals(0, bookService.countBooksInGenre("Satire")); // Still not counted
+        bookService.addBooks(Arrays.asList(orwell1984)); // Bulk addition
+        assertEquals(1, bookService.countBooksInGenre("Satire")); // Counted again, under its new genre
+    }
+
+    @Test
+    public void testCatalogSharesFieldStrings() {
+        // Test that compact storage leaves equal authors and genres pointing at one String
+
+        Book copy = new Book("Homage to Catalonia", new String("George Orwell".toCharArray()), new String("Satire".toCharArray()), 8.99); // Distinct but equal strings
+        assertNotSame(animalFarm.getAuthor(), copy.getAuthor()); // Separate objects before cataloging
+        bookService.addBook(copy); // Catalog it
+        assertSame(animalFarm.getAuthor(), copy.getAuthor()); // Shared afterwards
+        assertSame(animalFarm.getGenre(), copy.getGenre());
+        copy.setGenre(new String("Dystopian".toCharArray())); // Changed to another existing genre
+        assertSame(orwell1984.getGenre(), copy.getGenre()); // Shared again
+
+        BookService plain = new BookService(0, null, false); // Compact storage off
+        Book other = new Book("Burmese Days", new String("George Orwell".toCharArray()), "Fiction", 9.99);
+        plain.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99)); // Same author already cataloged
+        plain.addBook(other);
+        assertNotSame(animalFarm.getAuthor(), other.getAuthor()); // Keeps its own string
+        assertEquals(2, plain.countBooksByAuthor("George Orwell")); // Facets work the same
+    }
+
+    @Test
+    public void testBookInTwoCatalogs() {
+        // Test that a book cataloged twice keeps both catalogs' indexes current
+
+        BookService second = new BookService(); // A second catalog
+        second.addBook(orwell1984); // Same book in both
+        orwell1984.setGenre("Classic"); // Both catalogs are notified
+        assertEquals(1, bookService.countBooksInGenre("Classic"));
+        assertEquals(1, second.countBooksInGenre("Classic"));
+        bookService.removeBook(orwell1984); // Leaves only the second catalog listening
+        orwell1984.setGenre("Political"); // Only the second catalog follows
+        assertEquals(0, bookService.countBooksInGenre("Political")); // The first catalog no longer indexes it
+        assertEquals(1, second.countBooksInGenre("Political")); // The second one does
+        assertEquals(0, second.countBooksInGenre("Classic"));
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.HashSet; // Checks IDs for repeats
+import java.util.Set; // IDs seen
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class BookIdTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private Book orwell;  // Test book
+    private Book huxley;  // Test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates a fresh BookService and two books that have not been cataloged yet.
+        bookService = new BookService(); // Create a real instance of BookService
+        orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize Book objects
+        huxley = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+    }
+
+    @Test
+    public void testIdsAreUniqueAndStable() {
+        // Test that every cataloged book gets its own ID and keeps it across remove and add
+
+        assertEquals(0, orwell.getId()); // No ID before entering a catalog
+        assertTrue(bookService.addBook(orwell));
+        assertTrue(bookService.addBook(huxley));
+        int id = orwell.getId();
+        assertNotEquals(0, id); // Assigned on add
+        assertNotEquals(id, huxley.getId()); // Unique
+
+        assertTrue(bookService.removeBook(orwell));
+        assertEquals(id, orwell.getId()); // Removal keeps the ID
+        assertTrue(bookService.addBook(orwell)); // Add it back
+        assertEquals(id, orwell.getId()); // Same ID as before
+        assertSame(orwell, bookService.getBook(id));
+
+        Set<Integer> ids = new HashSet<>();
+        ids.add(orwell.getId());
+        ids.add(huxley.getId());
+        for (int i = 0; i < 100; i++) {
+            Book book = new Book("Title " + i, "Author " + i, "Genre", 1.0);
+            assertTrue(bookService.addBook(book));
+            assertTrue(ids.add(book.getId())); // Never handed out twice
+        }
+        BookService other = new BookService(); // IDs are unique across catalogs too
+        Book elsewhere = new Book("Elsewhere", "Nobody", "None", 1.0);
+        assertTrue(other.addBook(elsewhere));
+        assertTrue(ids.add(elsewhere.getId()));
+    }
+
+    @Test
+    public void testDuplicateDetectionUnchanged() {
+        // Test that only the same Book object counts as a duplicate, as when the catalog was a list
+
+        assertTrue(bookService.addBook(orwell));
+        assertFalse(bookService.addBook(orwell)); // The same object again is a duplicate
+        Book copy = new Book("1984", "George Orwell", "Dystopian", 9.99); // Equal title and author
+        assertTrue(bookService.addBook(copy)); // A different object is not
+        assertNotEquals(orwell.getId(), copy.getId());
+        assertEquals(2, bookService.getBookCount());
+        assertEquals(2, bookService.searchBook("1984").size()); // Both are cataloged
+        assertTrue(bookService.removeBook(copy));
+        assertFalse(bookService.removeBook(copy)); // Already gone
+        assertSame(orwell, bookService.getBook(orwell.getId())); // Removing the copy left the original
+    }
+
+    @Test
+    public void testGetBookAfterRemoval() {
+        // Test looking books up by ID once they have been removed
+
+        assertTrue(bookService.addBook(orwell));
+        assertTrue(bookService.addBook(huxley));
+        int id = orwell.getId();
+        assertTrue(bookService.removeBook(orwell));
+        assertNull(bookService.getBook(id)); // No longer cataloged
+        assertSame(huxley, bookService.getBook(huxley.getId())); // Others are unaffected
+        assertNull(bookService.getBook(0)); // Never assigned
+        assertFalse(bookService.purchaseBook(new User("reader", "password", "reader@example.com"), orwell));
+    }
+}
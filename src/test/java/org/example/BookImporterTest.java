@@ -0,0 +1,141 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Rule; // Annotation for JUnit rules
+import org.junit.Test; // Annotation for test methods
+import org.junit.rules.TemporaryFolder; // Scratch directory for feed files
+
+import java.io.StringReader; // In-memory feeds
+import java.nio.charset.StandardCharsets; // Feed encoding
+import java.nio.file.Files; // Writes feed files
+import java.nio.file.Path; // Location of feed files
+import java.util.ArrayList; // Collects callbacks
+import java.util.Arrays; // Builds expected lists
+import java.util.List; // Import List interface for handling lists of books
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class BookImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(); // Deleted after each test
+
+    private BookService bookService;  // Real instance of BookService the feeds are loaded into
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates a catalog that already holds one book.
+        bookService = new BookService(); // Create a real instance of BookService
+        bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99)); // Existing book
+    }
+
+    @Test
+    public void testCsvImport() throws Exception {
+        // Test a CSV feed with a header, quoting, a duplicate and broken lines
+
+        Path feed = folder.getRoot().toPath().resolve("feed.csv"); // Feed file
+        Files.write(feed, Arrays.asList(
+                "title,author,genre,price", // Header, skipped
+                "To Kill a Mockingbird,Harper Lee,Fiction,14.99", // Plain record
+                "\"Dune, Part One\",Frank Herbert,Science Fiction,10.50", // Quoted comma
+                "\"The \"\"Hobbit\"\"\",J.R.R. Tolkien,Fantasy,8", // Escaped quotes
+                "1984,George Orwell,Dystopian,9.99", // Already in the catalog
+                "", // Blank line, skipped
+                "Broken,Record,Only three", // Too few fields
+                "Free,Nobody,None,abc"), StandardCharsets.UTF_8); // Bad price
+
+        ImportResult result = new BookImporter(bookService).importFile(feed); // Format from the extension
+        assertEquals(8, result.getLines()); // Every line read
+        assertEquals(3, result.getImported()); // Three new books
+        assertEquals(1, result.getDuplicates()); // 1984 skipped
+        assertEquals(2, result.getFailed()); // Two broken lines
+        assertEquals(7, result.getErrors().get(0).getLineNumber()); // Reported with their line numbers
+        assertEquals(8, result.getErrors().get(1).getLineNumber());
+        assertEquals("Dune, Part One", bookService.searchBook("Dune").get(0).getTitle()); // Quoting handled
+        assertEquals("The \"Hobbit\"", bookService.searchBook("Hobbit").get(0).getTitle()); // Escapes handled
+        assertEquals(4, bookService.getBookCount()); // One existing plus three imported
+    }
+
+    @Test
+    public void testJsonlImport() throws Exception {
+        // Test a JSONL feed with escapes, extra fields and broken lines
+
+        String feed = "{\"title\":\"Brave New World\",\"author\":\"Aldous Huxley\",\"genre\":\"Dystopian\",\"price\":11.5}\n"
+                + "{\"price\": 7, \"genre\": \"Satire\", \"author\": \"George Orwell\", \"title\": \"Animal \\\"Farm\\\"\", \"isbn\": \"123\", \"used\": false}\n"
+                + "{\"title\":\"No price\",\"author\":\"Someone\",\"genre\":\"None\"}\n"
+                + "not json at all\n"; // Two good records, two broken ones
+        List<ImportError> errors = new ArrayList<>(); // Collected by the listener
+        ImportResult result = new BookImporter(bookService).importFrom(new StringReader(feed), BookImporter.Format.JSONL,
+                new ImportListener() {
+                    @Override
+                    public void recordFailed(ImportError error) {
+                        errors.add(error); // Record every failure
+                    }
+                });
+        assertEquals(2, result.getImported()); // Two new books
+        assertEquals(2, errors.size()); // The listener saw both failures
+        assertEquals(3, errors.get(0).getLineNumber()); // Missing price
+        assertEquals(4, errors.get(1).getLineNumber()); // Not an object
+        assertEquals("Animal \"Farm\"", bookService.searchBook("Farm").get(0).getTitle()); // Escapes handled
+    }
+
+    @Test
+    public void testParallelImportKeepsFileOrderAndDedupes() throws Exception {
+        // Test a feed spread over many small batches on several threads
+
+        StringBuilder feed = new StringBuilder(); // 10k records, each title appearing twice
+        for (int i = 0; i < 10000; i++) {
+            feed.append("Title ").append(i % 5000).append(",Author ").append(i % 5000).append(",Genre,1.0\n");
+        }
+        List<long[]> progress = new ArrayList<>(); // Progress callbacks
+        ImportResult result = new BookImporter(bookService, 4, 100).importFrom(new StringReader(feed.toString()),
+                BookImporter.Format.CSV, new ImportListener() {
+                    @Override
+                    public void progress(long lines, long imported, long duplicates, long failed) {
+                        progress.add(new long[]{lines, imported, duplicates}); // Record every update
+                    }
+                });
+        assertEquals(5000, result.getImported()); // First occurrence of every title
+        assertEquals(5000, result.getDuplicates()); // Second occurrence of every title
+        assertEquals(100, progress.size()); // One update per batch
+        assertArrayEquals(new long[]{10000, 5000, 5000}, progress.get(99)); // Final totals
+        List<Book> books = bookService.books(); // Catalog in insertion order
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("Title " + i, books.get(i + 1).getTitle()); // Same order as the file
+        }
+    }
+
+    @Test
+    public void testAddBooks() {
+        // Test the batch insert on its own
+
+        Book book1 = new Book("Animal Farm", "George Orwell", "Satire", 7.99); // New book
+        Book book2 = new Book("Brave New World", "Aldous Huxley", "Dystopian", 11.50); // Another new book
+        bookService.addBook(book1); // Already cataloged
+        List<Book> added = bookService.addBooks(Arrays.asList(book1, book2, book2)); // One new, two repeats
+        assertEquals(Arrays.asList(book2), added); // Only the new book was added
+        assertEquals(3, bookService.getBookCount()); // One existing, two added in total
+        assertEquals(Arrays.asList(book2), bookService.searchBook("Huxley")); // Indexed
+    }
+
+    @Test
+    public void testDedupeFollowsCatalogChanges() {
+        // Test that duplicate detection sees edits and removals made after the first import
+
+        Book orwell = bookService.findBooksByAuthor("George Orwell").get(0); // The existing book
+        Book copy = new Book("1984", "George Orwell", "Dystopian", 9.99); // Same on every field
+        assertTrue(bookService.addBooks(Arrays.asList(copy), true).isEmpty()); // Skipped as a duplicate
+        orwell.setTitle("Nineteen Eighty-Four"); // Edit the cataloged book
+        assertEquals(Arrays.asList(copy), bookService.addBooks(Arrays.asList(copy), true)); // No longer a duplicate
+        Book renamed = new Book("Nineteen Eighty-Four", "George Orwell", "Dystopian", 9.99);
+        assertTrue(bookService.addBooks(Arrays.asList(renamed), true).isEmpty()); // The new title is one
+        Book cheaper = new Book("1984", "George Orwell", "Dystopian", 4.99); // Same book at another price
+        assertEquals(Arrays.asList(cheaper), bookService.addBooks(Arrays.asList(cheaper), true)); // Kept
+        bookService.removeBook(copy); // Remove both 1984 copies
+        bookService.removeBook(cheaper);
+        Book again = new Book("1984", "George Orwell", "Dystopian", 9.99);
+        assertEquals(Arrays.asList(again), bookService.addBooks(Arrays.asList(again, new Book("1984", "George Orwell",
+                "Dystopian", 9.99)), true)); // Removed books no longer count, earlier books in the batch do
+    }
+}
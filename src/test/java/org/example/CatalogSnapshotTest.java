@@ -0,0 +1,200 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Collects pages
+import java.util.Arrays; // Builds expected lists
+import java.util.HashSet; // Checks for repeated results
+import java.util.List; // Import List interface for handling lists of books
+import java.util.Random; // Generates the random changes
+import java.util.concurrent.CountDownLatch; // Holds a writer inside the catalog lock
+import java.util.concurrent.ExecutorService; // Runs the concurrent readers
+import java.util.concurrent.Executors; // Creates the thread pool
+import java.util.concurrent.Future; // Result of each reader
+import java.util.concurrent.TimeUnit; // Timeouts
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class CatalogSnapshotTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private Book orwell;  // Test book
+    private Book huxley;  // Test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs two dystopian novels.
+        bookService = new BookService(); // Create a real instance of BookService
+        orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize Book objects
+        huxley = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+        bookService.addBook(orwell); // Catalog them
+        bookService.addBook(huxley);
+    }
+
+    @Test
+    public void testSnapshotIgnoresLaterChanges() {
+        // Test that a snapshot keeps the catalog as it was
+
+        CatalogSnapshot before = bookService.snapshot(); // Pin the current version
+        assertSame(before, bookService.snapshot()); // Nothing changed, same snapshot
+        bookService.addBook(new Book("We", "Yevgeny Zamyatin", "Dystopian", 8.99)); // Later changes
+        bookService.removeBook(huxley);
+        orwell.setTitle("Nineteen Eighty-Four");
+
+        assertEquals(Arrays.asList(orwell, huxley), before.getBooks()); // Old membership
+        assertEquals(Arrays.asList(orwell), before.searchBook("1984")); // Old title still matches
+        assertTrue(before.searchBook("Nineteen").isEmpty()); // New title does not
+        CatalogSnapshot after = bookService.snapshot(); // Current version
+        assertTrue(after.getVersion() > before.getVersion()); // Newer
+        assertEquals(2, after.size()); // One added, one removed
+        assertEquals(Arrays.asList(orwell), after.searchBook("Nineteen")); // Sees the rename
+        assertEquals(bookService.searchBook("Dystopian"), after.searchBook("Dystopian")); // Same as the live catalog
+    }
+
+    @Test
+    public void testPinnedPagesStayConsistent() {
+        // Test paging through a pinned snapshot while the catalog keeps changing
+
+        for (int i = 0; i < 100; i++) {
+            bookService.addBook(new Book("Novel " + i, "Author " + i, "Fiction", 5.0)); // 100 matches
+        }
+        CatalogSnapshot pinned = bookService.snapshot(); // Pin it
+        List<Book> seen = new ArrayList<>();
+        SearchPage page = pinned.searchBookPage("Novel", null, 30);
+        while (true) {
+            seen.addAll(page.getBooks()); // Collect the page
+            bookService.addBook(new Book("Novel extra", "Someone", "Fiction", 5.0)); // Churn between pages
+            bookService.removeBook(seen.get(seen.size() - 1));
+            if (!page.hasMore()) {
+                break;
+            }
+            page = pinned.searchBookPage("Novel", page.getNextCursor(), 30); // Continue on the same snapshot
+        }
+        assertEquals(100, seen.size()); // Every original match
+        assertEquals(100, new HashSet<>(seen).size()); // None repeated
+        assertEquals("Novel 0", seen.get(0).getTitle()); // Title matches in catalog order
+    }
+
+    @Test
+    public void testRemovalsCompact() {
+        // Test that removing most books keeps snapshots correct on both sides of the compaction
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Book book = new Book("Title " + i, "Author", "Genre", 1.0);
+            books.add(book);
+            bookService.addBook(book);
+        }
+        CatalogSnapshot full = bookService.snapshot(); // Before the removals
+        for (int i = 0; i < 4500; i++) {
+            bookService.removeBook(books.get(i)); // Enough to compact
+        }
+        CatalogSnapshot sparse = bookService.snapshot(); // After them
+        assertEquals(5002, full.size()); // Unaffected
+        assertEquals(502, sparse.size()); // Only the survivors
+        assertEquals(books.subList(4500, 5000), sparse.searchBook("Title")); // Still in catalog order
+        books.get(4999).setTitle("Last"); // Updates still find their slot after compaction
+        assertEquals(Arrays.asList(books.get(4999)), bookService.snapshot().searchBook("Last"));
+    }
+
+    @Test
+    public void testIndexedSearchMatchesCatalog() {
+        // Test that snapshot searches agree with the live catalog through many versions of adds, edits and removals
+
+        Random random = new Random(42); // Fixed seed, reproducible
+        List<Book> books = new ArrayList<>();
+        String[] keywords = {"Title 1", "Author 7", "Genre", "itle 23", "Renamed", "Ge"}; // Indexed and short
+        for (int round = 0; round < 300; round++) {
+            for (int i = 0; i < 1 + random.nextInt(20); i++) { // A few changes per version
+                int action = random.nextInt(10);
+                if (action < 5 || books.isEmpty()) {
+                    Book book = new Book("Title " + random.nextInt(500), "Author " + random.nextInt(50), "Genre", 1.0);
+                    books.add(book);
+                    bookService.addBook(book);
+                } else if (action < 8) {
+                    books.get(random.nextInt(books.size())).setTitle("Renamed " + random.nextInt(100)); // Edit in place
+                } else {
+                    bookService.removeBook(books.remove(random.nextInt(books.size()))); // Leaves a hole
+                }
+            }
+            CatalogSnapshot snapshot = bookService.snapshot(); // One new version
+            for (String keyword : keywords) {
+                assertEquals(bookService.searchBook(keyword), snapshot.searchBook(keyword)); // Same books, same order
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotDoesNotWaitForWriters() throws Exception {
+        // Test that publishing a snapshot never waits for a write holding the catalog lock
+
+        CountDownLatch appending = new CountDownLatch(1); // Counted down once the writer holds the lock
+        CountDownLatch release = new CountDownLatch(1); // Lets the writer finish
+        bookService.setJournal(new Journal() { // A journal that stalls inside the write
+            @Override
+            public void beginMutation() {
+            }
+
+            @Override
+            public long append(Mutation mutation) {
+                appending.countDown();
+                try {
+                    release.await(); // Stall with the write lock held
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }
+
+            @Override
+            public void endMutation() {
+            }
+
+            @Override
+            public void awaitDurable(long lsn) {
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Boolean> writer = executor.submit(() -> bookService.addBook(new Book("We", "Yevgeny Zamyatin", "Dystopian", 8.99)));
+        appending.await(); // The writer is inside its critical section
+        Future<CatalogSnapshot> reader = executor.submit(bookService::snapshot);
+        CatalogSnapshot snapshot = reader.get(10, TimeUnit.SECONDS); // Published while the write is still held
+        assertEquals(Arrays.asList(orwell), snapshot.searchBook("1984")); // And fully usable
+        release.countDown(); // Let the writer go
+        assertTrue(writer.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReadersDuringWriteBurst() throws Exception {
+        // Test that readers of a pinned snapshot always see the same results while writers run
+
+        for (int i = 0; i < 2000; i++) {
+            bookService.addBook(new Book("Title " + i, "Author", "Genre", 1.0));
+        }
+        CatalogSnapshot pinned = bookService.snapshot();
+        int expected = pinned.searchBook("Title").size(); // 2000
+        ExecutorService executor = Executors.newFixedThreadPool(4); // Concurrent readers
+        List<Future<Boolean>> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(executor.submit(() -> {
+                boolean consistent = true;
+                for (int i = 0; i < 200; i++) {
+                    consistent &= pinned.searchBook("Title").size() == expected; // Never changes
+                    bookService.snapshot().searchBook("Title"); // Newer snapshots are usable too
+                }
+                return consistent;
+            }));
+        }
+        for (int i = 0; i < 2000; i++) {
+            bookService.addBook(new Book("Title extra " + i, "Author", "Genre", 1.0)); // Write burst
+        }
+        for (Future<Boolean> reader : readers) {
+            assertTrue(reader.get(30, TimeUnit.SECONDS)); // Every reader saw a stable snapshot
+        }
+        executor.shutdown();
+        assertEquals(4000, bookService.snapshot().searchBook("Title").size()); // All writes published
+    }
+}
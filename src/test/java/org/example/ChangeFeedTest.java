@@ -0,0 +1,301 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Collects delivered events
+import java.util.Arrays; // Builds expected lists
+import java.util.HashSet; // Checks for repeated events
+import java.util.List; // Import List interface for handling lists
+import java.util.Set; // Usernames seen
+import java.util.concurrent.CountDownLatch; // Holds a writer between its journal append and its publish
+import java.util.concurrent.ExecutorService; // Runs the concurrent writers
+import java.util.concurrent.Executors; // Creates the thread pool
+import java.util.concurrent.Future; // Result of each writer
+import java.util.concurrent.TimeUnit; // Timeouts
+import java.util.concurrent.atomic.AtomicLong; // Sequences drawn by the journal
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class ChangeFeedTest {
+
+    private ChangeFeed feed;  // Feed under test, 16 slots
+    private BookService bookService;  // Real instance of BookService, publishing to the feed
+    private UserService userService;  // Real instance of UserService, publishing to the feed
+
+    // Records what it is given, copying each event since the slot is reused
+    private static final class Recorder implements ChangeSubscriber {
+        final List<String> events = new ArrayList<>();
+        final List<Long> sequences = new ArrayList<>();
+        int batches;
+
+        @Override
+        public void onEvent(ChangeEvent event) {
+            events.add(event.getType() + " " + (event.getTitle() != null ? event.getTitle() : event.getUsername()));
+            sequences.add(event.getSequence());
+        }
+
+        @Override
+        public void onBatchEnd() {
+            batches++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It attaches one small feed to both services.
+        feed = new ChangeFeed(16); // Small, so tests can lap it
+        bookService = new BookService();
+        userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16); // Cheapest hashing, for the many registrations
+        bookService.setChangeFeed(feed);
+        userService.setChangeFeed(feed);
+    }
+
+    @Test
+    public void testMutationsArePublishedInOrder() {
+        // Test that every kind of change reaches a subscriber, in the order it happened
+
+        ChangeSubscription subscription = feed.subscribe(); // Sees only what follows
+        User user = new User("reader", "password", "reader@example.com");
+        Book book = new Book("1984", "George Orwell", "Dystopian", 9.99);
+        assertTrue(userService.registerUser(user));
+        assertTrue(bookService.addBook(book));
+        userService.deposit(user, 1000); // Not a published change
+        assertTrue(bookService.purchaseBook(user, book)); // Neither is this
+        assertTrue(bookService.addBookReview(user, book, "Chilling"));
+        assertTrue(userService.updateUserProfile(user, "critic", "password", "critic@example.com"));
+        book.setPrice(7.99); // Setters on a cataloged book publish updates
+        assertTrue(bookService.removeBook(book));
+
+        List<ChangeEvent.Type> types = new ArrayList<>();
+        List<String> details = new ArrayList<>();
+        subscription.poll(new ChangeSubscriber() {
+            @Override
+            public void onEvent(ChangeEvent event) {
+                types.add(event.getType());
+                if (event.getType() == ChangeEvent.Type.REVIEW_ADDED) {
+                    details.add(event.getUsername() + ":" + event.getBookId() + ":" + event.getReview());
+                } else if (event.getType() == ChangeEvent.Type.USER_UPDATED) {
+                    details.add(event.getPreviousUsername() + "->" + event.getUsername());
+                } else if (event.getType() == ChangeEvent.Type.BOOK_ADDED
+                        || event.getType() == ChangeEvent.Type.BOOK_UPDATED) {
+                    details.add(event.getTitle() + "/" + event.getAuthor() + "/" + event.getPrice());
+                }
+            }
+        }, 100);
+        assertEquals(Arrays.asList(ChangeEvent.Type.USER_REGISTERED, ChangeEvent.Type.BOOK_ADDED,
+                ChangeEvent.Type.REVIEW_ADDED, ChangeEvent.Type.USER_UPDATED, ChangeEvent.Type.BOOK_UPDATED,
+                ChangeEvent.Type.BOOK_REMOVED), types);
+        assertEquals(Arrays.asList("1984/George Orwell/9.99", "reader:" + book.getId() + ":Chilling",
+                "reader->critic", "1984/George Orwell/7.99"), details); // Event fields as of the change
+        assertEquals(0, subscription.getLag()); // Caught up
+    }
+
+    @Test
+    public void testPollDeliversBoundedBatches() {
+        // Test that a subscriber never gets more than it asked for
+
+        ChangeSubscription subscription = feed.subscribe();
+        for (int i = 0; i < 10; i++) {
+            bookService.addBook(new Book("Book " + i, "Author", "Genre", 1.0));
+        }
+        Recorder recorder = new Recorder();
+        assertEquals(4, subscription.poll(recorder, 4)); // First batch
+        assertEquals(6, subscription.getLag()); // The rest wait in the ring
+        assertEquals(4, subscription.poll(recorder, 4));
+        assertEquals(2, subscription.poll(recorder, 4)); // Only two left
+        assertEquals(0, subscription.poll(recorder, 4)); // Caught up
+        assertEquals(3, recorder.batches); // One onBatchEnd per non-empty poll
+        assertEquals("BOOK_ADDED Book 9", recorder.events.get(9)); // In order
+        assertEquals(0, subscription.getDropped());
+    }
+
+    @Test
+    public void testLappedSubscriberCountsDrops() {
+        // Test that writers never wait for a slow subscriber, which loses the oldest events instead
+
+        ChangeSubscription slow = feed.subscribe();
+        for (int i = 0; i < 40; i++) {
+            userService.registerUser(new User("user" + i, "password", "user" + i + "@example.com")); // 40 events, 16 slots
+        }
+        Recorder recorder = new Recorder();
+        assertEquals(16, slow.poll(recorder, 100)); // Only what the ring still holds
+        assertEquals(24, slow.getDropped()); // The rest were overwritten
+        assertEquals("USER_REGISTERED user24", recorder.events.get(0)); // Resumes at the oldest retained event
+        assertEquals(Long.valueOf(39), recorder.sequences.get(15));
+        ChangeSubscription late = feed.subscribe(); // A new subscriber starts at the end
+        assertEquals(0, late.poll(recorder, 100));
+    }
+
+    @Test
+    public void testConcurrentWritersAndReader() throws Exception {
+        // Test that events from concurrent writers all arrive exactly once while a subscriber keeps up
+
+        ChangeFeed large = new ChangeFeed(1 << 16); // Room for every event, so nothing is dropped
+        UserService users = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16);
+        users.setChangeFeed(large);
+        ChangeSubscription subscription = large.subscribe();
+        ExecutorService executor = Executors.newFixedThreadPool(4); // Concurrent writers
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    users.registerUser(new User("w" + writer + "u" + i, "password", "x@example.com"));
+                }
+            }));
+        }
+        Set<String> seen = new HashSet<>();
+        List<Long> sequences = new ArrayList<>();
+        ChangeSubscriber collector = event -> {
+            seen.add(event.getUsername());
+            sequences.add(event.getSequence());
+        };
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30); // Don't hang if a writer fails
+        while (seen.size() < 20_000 && System.nanoTime() < deadline) {
+            if (subscription.poll(collector, 256) == 0) {
+                Thread.yield(); // Caught up with the writers
+            }
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(20_000, sequences.size()); // No event delivered twice
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i, sequences.get(i).longValue()); // In sequence order, without gaps
+        }
+        assertEquals(0, subscription.getDropped());
+    }
+
+    @Test
+    public void testEventsFollowJournalOrder() throws Exception {
+        // Test that concurrent registrations and reviews reach the feed in the order they were journaled
+
+        List<String> journaled = new ArrayList<>(); // What the journal was given, in order
+        Journal journal = new Journal() {
+            @Override
+            public void beginMutation() {
+            }
+
+            @Override
+            public synchronized long append(Mutation mutation) {
+                if (mutation.type == Mutation.Type.REGISTER_USER || mutation.type == Mutation.Type.ADD_REVIEW) {
+                    journaled.add(mutation.type + " " + mutation.username);
+                }
+                return journaled.size();
+            }
+
+            @Override
+            public void endMutation() {
+            }
+
+            @Override
+            public void awaitDurable(long lsn) {
+            }
+        };
+        ChangeFeed large = new ChangeFeed(1 << 14); // Room for every event
+        bookService.setChangeFeed(large);
+        userService.setChangeFeed(large);
+        bookService.setJournal(journal);
+        userService.setJournal(journal);
+        Book book = new Book("1984", "George Orwell", "Dystopian", 9.99);
+        assertTrue(bookService.addBook(book));
+        ChangeSubscription subscription = large.subscribe();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4); // Concurrent writers
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    User user = new User("w" + writer + "u" + i, "password", "x@example.com");
+                    assertTrue(userService.registerUser(user));
+                    userService.deposit(user, 1000); // Cents, enough for one copy
+                    assertTrue(bookService.purchaseBook(user, book));
+                    assertTrue(bookService.addBookReview(user, book, "Review " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<String> published = new ArrayList<>();
+        subscription.poll(event -> published.add(
+                (event.getType() == ChangeEvent.Type.USER_REGISTERED ? "REGISTER_USER " : "ADD_REVIEW ")
+                        + event.getUsername()), 10_000);
+        assertEquals(4000, published.size()); // A registration and a review per user
+        assertEquals(journaled, published); // Same order as the journal
+    }
+
+    @Test
+    public void testSubscribersWaitForSlowerWriters() throws Exception {
+        // Test that a writer which drew an earlier sequence holds subscribers back without blocking later writers
+
+        CountDownLatch drawn = new CountDownLatch(1); // The first writer has its sequence
+        CountDownLatch release = new CountDownLatch(1); // Lets the first writer publish
+        bookService.setJournal(new Journal() {
+            @Override
+            public void beginMutation() {
+            }
+
+            @Override
+            public long append(Mutation mutation) {
+                return 0;
+            }
+
+            @Override
+            public long append(Mutation mutation, AtomicLong sequences) {
+                mutation.sequence = sequences.getAndIncrement();
+                if (mutation.title.equals("Slow")) {
+                    drawn.countDown();
+                    try {
+                        release.await(); // Stall between drawing the sequence and publishing
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return 0;
+            }
+
+            @Override
+            public void endMutation() {
+            }
+
+            @Override
+            public void awaitDurable(long lsn) {
+            }
+        });
+        ChangeSubscription subscription = feed.subscribe();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> slow = executor.submit(() -> bookService.addBook(new Book("Slow", "Author", "Genre", 1.0)));
+        assertTrue(drawn.await(10, TimeUnit.SECONDS));
+        User user = new User("reader", "password", "reader@example.com");
+        assertTrue(userService.registerUser(user)); // Not held up by the stalled writer
+
+        Recorder recorder = new Recorder();
+        assertEquals(0, subscription.poll(recorder, 10)); // Waits at the stalled writer's sequence
+        release.countDown();
+        assertTrue(slow.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(2, subscription.poll(recorder, 10));
+        assertEquals(Arrays.asList("BOOK_ADDED Slow", "USER_REGISTERED reader"), recorder.events); // In sequence order
+        assertEquals(Arrays.asList(0L, 1L), recorder.sequences);
+    }
+
+    @Test
+    public void testDisabledFeedPublishesNothing() {
+        // Test that the default feed costs nothing and delivers nothing
+
+        ChangeSubscription subscription = ChangeFeed.DISABLED.subscribe();
+        new BookService().addBook(new Book("Unseen", "Nobody", "None", 1.0)); // Services start disabled
+        assertEquals(0, subscription.poll(new Recorder(), 10));
+        assertEquals(0, ChangeFeed.DISABLED.getPublishedCount());
+        assertEquals(16, feed.getCapacity());
+        assertEquals(32, new ChangeFeed(17).getCapacity()); // Rounded up to a power of two
+    }
+}
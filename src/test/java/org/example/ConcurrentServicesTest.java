@@ -0,0 +1,144 @@
+package org.example;
+
+import org.junit.After; // Annotation for teardown method
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Resizable list for collecting futures
+import java.util.List; // Import List interface for handling lists of futures
+import java.util.concurrent.Callable; // Task type submitted to the executor
+import java.util.concurrent.CountDownLatch; // Used to release all threads at the same moment
+import java.util.concurrent.ExecutorService; // Thread pool running the concurrent calls
+import java.util.concurrent.Executors; // Factory for the thread pool
+import java.util.concurrent.Future; // Result handle of each concurrent call
+import java.util.concurrent.TimeUnit; // Timeouts
+import java.util.concurrent.TimeoutException; // Thrown while a call is still blocked
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class ConcurrentServicesTest {
+
+    private static final int THREADS = 8; // Number of threads hammering the services at once
+
+    private ExecutorService executor;  // Thread pool used to issue concurrent calls
+    private CountDownLatch start;  // Latch that lets all tasks start together
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates a fresh thread pool and start latch.
+        executor = Executors.newFixedThreadPool(THREADS); // Create the thread pool
+        start = new CountDownLatch(1); // Create a latch that is released once every task is queued
+    }
+
+    @After
+    public void tearDown() {
+        // This method runs after each test.
+        // It shuts down the thread pool.
+        executor.shutdownNow(); // Stop the thread pool
+    }
+
+    @Test
+    public void testRegisterUser_OnlyOneWinner() throws Exception {
+        // Test that concurrent registrations of the same username let exactly one through
+
+        UserService userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16); // Cheapest hashing, the race is what matters
+        List<Future<Boolean>> results = new ArrayList<>(); // Collect the outcome of every registration
+        for (int i = 0; i < THREADS; i++) {
+            String email = "john" + i + "@example.com"; // Give each attempt a distinct user object
+            results.add(executor.submit(awaitStart(() -> userService.registerUser(new User("JohnDoe", "password", email))))); // Queue one registration
+        }
+        start.countDown(); // Release all registrations at once
+
+        int successes = 0; // Count how many registrations succeeded
+        for (Future<Boolean> result : results) {
+            successes += result.get() ? 1 : 0; // Add one for each successful registration
+        }
+        assertEquals(1, successes); // Assert that exactly one registration won
+    }
+
+    @Test
+    public void testUpdateUserProfile_RenamesAtomically() {
+        // Test that a rename claims the new username and frees the old one
+
+        UserService userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16); // Cheapest hashing, the race is what matters
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object for use in the test
+        userService.registerUser(user); // Register the user under the old name
+        assertTrue(userService.updateUserProfile(user, "JaneDoe", "secret", "janedoe@example.com")); // Rename the user
+        assertNull(userService.loginUser("JohnDoe", "password")); // Assert that the old name is gone
+        assertSame(user, userService.loginUser("JaneDoe", "secret")); // Assert that the new name logs in
+        assertTrue(userService.registerUser(new User("JohnDoe", "password", "other@example.com"))); // Assert that the old name can be reused
+    }
+
+    @Test
+    public void testAddBookReview_NoLostReviews() throws Exception {
+        // Test that reviews added concurrently to the same book are all kept
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        Book book = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object for use in the test
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object for use in the test
+        bookService.addBook(book); // Add the book to the catalog
+        user.getPurchasedBooks().add(book); // Simulate that the user purchased the book
+
+        int reviewsPerThread = 1000; // Number of reviews each thread adds
+        List<Future<Boolean>> results = new ArrayList<>(); // Collect the outcome of every task
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(awaitStart(() -> {
+                for (int j = 0; j < reviewsPerThread; j++) {
+                    bookService.addBookReview(user, book, "Review " + j); // Add one review
+                }
+                return true;
+            })));
+        }
+        start.countDown(); // Release all threads at once
+        for (Future<Boolean> result : results) {
+            result.get(); // Wait for every thread to finish
+        }
+
+        assertEquals(THREADS * reviewsPerThread, book.getReviews().size()); // Assert that no review was lost
+    }
+
+    @Test
+    public void testRemoveBook_RacingRenameLeavesNoStaleIndexEntries() throws Exception {
+        // Test that a book renamed while it is being removed disappears from every index under both names
+
+        BookService bookService = new BookService(0, null); // No search cache, so every search hits the indexes
+        Book book = new Book("Animal Farm", "George Orwell", "Satire", 9.99); // Initialize a Book object for use in the test
+        CountDownLatch renaming = new CountDownLatch(1); // Counted down once the new title is written
+        CountDownLatch release = new CountDownLatch(1); // Lets the rename go on to reindex the catalog
+        book.addChangeListener((changed, field, oldValue) -> { // Notified before the catalog's own listener
+            renaming.countDown();
+            try {
+                release.await(); // Hold the rename between writing the title and reindexing it
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        bookService.addBook(book); // Add the book to the catalog
+
+        Future<?> rename = executor.submit(() -> book.setTitle("Nineteen Eighty-Four")); // Rename the book...
+        renaming.await();
+        Future<Boolean> remove = executor.submit(() -> bookService.removeBook(book)); // ...and remove it meanwhile
+        try {
+            remove.get(100, TimeUnit.MILLISECONDS); // The removal waits for the rename to be indexed
+        } catch (TimeoutException expected) {
+            // Still waiting, as it should
+        }
+        release.countDown(); // Let the rename finish
+        rename.get();
+        assertTrue(remove.get()); // Assert that the removal went through afterwards
+
+        assertEquals(0, bookService.getBookCount()); // Assert that the book is gone
+        assertTrue(bookService.searchBook("Animal Farm").isEmpty()); // Assert that no old posting is left behind
+        assertTrue(bookService.searchBook("Nineteen").isEmpty()); // Nor a new one
+        assertTrue(bookService.fuzzySearchBook("animal farm").isEmpty()); // Assert that the fuzzy index is clean too
+        assertTrue(bookService.fuzzySearchBook("nineteen").isEmpty());
+    }
+
+    private <T> Callable<T> awaitStart(Callable<T> task) {
+        return () -> {
+            start.await(); // Wait until every task has been queued
+            return task.call(); // Run the actual call
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Builds the expected results
+import java.util.Arrays; // Builds expected lists
+import java.util.Collections; // Empty expected lists
+import java.util.List; // Import List interface for handling lists of books
+import java.util.Random; // Generates the random catalog
+import java.util.Set; // Normalized words of a book
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class FuzzySearchTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private Book orwell;  // Test book
+    private Book garcia;  // Test book with accents
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs a few books with mixed case and accented names.
+        bookService = new BookService(); // Create a real instance of BookService
+        orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize Book objects
+        garcia = new Book("Cien años de soledad", "Gabriel García Márquez", "Fiction", 14.99);
+        bookService.addBook(orwell); // Catalog them
+        bookService.addBook(garcia);
+        bookService.addBook(new Book("Animal Farm", "George Orwell", "Satire", 7.99));
+    }
+
+    @Test
+    public void testCaseAccentsAndTypos() {
+        // Test the forms of a query that plain searchBook misses
+
+        assertTrue(bookService.searchBook("orwell").isEmpty()); // searchBook is case-sensitive
+        assertEquals(2, bookService.fuzzySearchBook("orwell").size()); // Case ignored
+        assertEquals(2, bookService.fuzzySearchBook("Orwel").size()); // One letter missing
+        assertEquals(2, bookService.fuzzySearchBook("Orwlel").size()); // Two letters swapped
+        assertEquals(Arrays.asList(garcia), bookService.fuzzySearchBook("garcia marquez")); // Accents ignored
+        assertEquals(Arrays.asList(garcia), bookService.fuzzySearchBook("Cien anos")); // In titles too
+    }
+
+    @Test
+    public void testEveryWordMustMatch() {
+        // Test that a multi-word query narrows the results
+
+        assertEquals(Arrays.asList(orwell), bookService.fuzzySearchBook("orwell 1984")); // Author and title words
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("orwell soledad")); // No book has both
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("!!")); // No words at all
+    }
+
+    @Test
+    public void testEditBound() {
+        // Test the per-word edit limits
+
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("Orwel", 0)); // Exact words only
+        assertEquals(2, bookService.fuzzySearchBook("ORWELL", 0).size()); // Still ignores case
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("Orw")); // Short words allow one edit, not three
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("Dystopian")); // Genres are not indexed
+        try {
+            bookService.fuzzySearchBook("Orwell", 3); // Beyond the supported bound
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Queries with more edits would no longer be selective
+        }
+    }
+
+    @Test
+    public void testFollowsCatalogChanges() {
+        // Test that setters and removals keep the index current
+
+        orwell.setAuthor("Eric Blair"); // Pen name dropped
+        assertEquals(1, bookService.fuzzySearchBook("orwell").size()); // Only Animal Farm now
+        assertEquals(Arrays.asList(orwell), bookService.fuzzySearchBook("blair")); // Found by the new author
+        bookService.removeBook(orwell); // Removed
+        assertEquals(Collections.emptyList(), bookService.fuzzySearchBook("blair")); // Gone
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        // Test the BK-tree against edit distance computed for every book, on a random catalog
+
+        Random random = new Random(42); // Fixed seed, reproducible
+        BookService catalog = new BookService();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Book book = new Book(randomWord(random) + " " + randomWord(random), randomWord(random), "Genre", 1.0);
+            books.add(book);
+            catalog.addBook(book);
+        }
+        for (int i = 0; i < 1500; i++) {
+            catalog.removeBook(books.remove(random.nextInt(books.size()))); // Enough removals to force a rebuild
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = randomWord(random); // Random one-word query
+            int edits = Math.min(FuzzyIndex.MAX_EDITS, FuzzyIndex.editsFor(query));
+            List<Book> expected = new ArrayList<>();
+            for (Book book : books) {
+                Set<String> words = FuzzyIndex.words(book.getTitle(), book.getAuthor());
+                if (words.stream().anyMatch(word -> FuzzyIndex.distance(query, word) <= edits)) {
+                    expected.add(book); // Catalog order
+                }
+            }
+            assertEquals(expected, catalog.fuzzySearchBook(query)); // Same books, same order
+        }
+    }
+
+    private static String randomWord(Random random) {
+        // Short words over a small alphabet, so many are within a few edits of each other
+        char[] word = new char[3 + random.nextInt(5)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(word);
+    }
+}
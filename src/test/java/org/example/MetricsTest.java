@@ -0,0 +1,136 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Rule; // Annotation for JUnit rules
+import org.junit.Test; // Annotation for test methods
+import org.junit.rules.TemporaryFolder; // Scratch directory for the exported file
+
+import javax.management.ObjectName; // Name of the metrics MBean
+import java.io.Closeable; // Handle of the periodic export
+import java.lang.management.ManagementFactory; // Platform MBean server
+import java.nio.file.Files; // Reads the exported file
+import java.nio.file.Path; // Location of the exported file
+import java.time.Duration; // Export period
+import java.util.List; // Lines of the exported file
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(); // Deleted after each test
+
+    private Metrics metrics;  // Shared by both services
+    private BookService bookService;  // Real instance of BookService
+    private UserService userService;  // Real instance of UserService
+    private User user;  // Registered test user
+    private Book book;  // Cataloged test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It attaches one Metrics instance to both services and registers a user and a book.
+        metrics = new Metrics(); // Enabled metrics
+        bookService = new BookService(); // Create a real instance of BookService
+        userService = new UserService(); // Create a real instance of UserService
+        bookService.setMetrics(metrics); // Attach the metrics
+        userService.setMetrics(metrics);
+        user = new User("testUser", "password", "test@example.com"); // Create a test user
+        book = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        userService.registerUser(user); // Register the user
+        bookService.addBook(book); // Catalog the book
+    }
+
+    @Test
+    public void testOutcomesAreCounted() {
+        // Test that every outcome lands in its own counter
+
+        userService.registerUser(new User("testUser", "other", "other@example.com")); // Username taken
+        userService.loginUser("testUser", "password"); // Success
+        userService.loginUser("testUser", "wrong"); // Wrong password
+        userService.loginUser("nobody", "password"); // User not found
+        bookService.searchBook("Orwell"); // Results
+        bookService.searchBook("Tolkien"); // No results
+        bookService.addBookReview(user, book, "Great"); // Not purchased yet
+        bookService.purchaseBook(user, new Book("Missing", "Nobody", "None", 1.00)); // Not cataloged
+        user.getPurchasedBooks().add(book); // Record ownership
+        bookService.addBookReview(user, book, "Great"); // Success
+
+        MetricsSnapshot snapshot = metrics.snapshot(); // Read the counters
+        assertEquals(1, snapshot.getCount(Metrics.Operation.REGISTER_USER, Metrics.Outcome.SUCCESS)); // From setUp
+        assertEquals(1, snapshot.getCount(Metrics.Operation.REGISTER_USER, Metrics.Outcome.USERNAME_TAKEN));
+        assertEquals(3, snapshot.getCount(Metrics.Operation.LOGIN_USER)); // Three login attempts
+        assertEquals(1, snapshot.getCount(Metrics.Operation.LOGIN_USER, Metrics.Outcome.SUCCESS));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.LOGIN_USER, Metrics.Outcome.WRONG_PASSWORD));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.LOGIN_USER, Metrics.Outcome.USER_NOT_FOUND));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.SEARCH_BOOK, Metrics.Outcome.SUCCESS));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.SEARCH_BOOK, Metrics.Outcome.NO_RESULTS));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.PURCHASE_BOOK, Metrics.Outcome.BOOK_NOT_FOUND));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.ADD_BOOK_REVIEW, Metrics.Outcome.NOT_PURCHASED));
+        assertEquals(1, snapshot.getCount(Metrics.Operation.ADD_BOOK_REVIEW, Metrics.Outcome.SUCCESS));
+        assertTrue(snapshot.getMaxLatencyNanos(Metrics.Operation.LOGIN_USER) > 0); // Latencies were recorded
+    }
+
+    @Test
+    public void testDisabledMetricsRecordNothing() {
+        // Test that detaching metrics stops recording
+
+        bookService.setMetrics(Metrics.DISABLED); // Detach
+        bookService.searchBook("Orwell"); // Not recorded
+        assertEquals(0, metrics.snapshot().getCount(Metrics.Operation.SEARCH_BOOK)); // Nothing counted
+        assertEquals(0, Metrics.DISABLED.snapshot().getCount(Metrics.Operation.SEARCH_BOOK)); // Not even in DISABLED
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        // Test that percentiles are within the histogram's precision
+
+        LatencyHistogram histogram = new LatencyHistogram(); // Standalone histogram
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000L); // 1us to 10ms, uniformly
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(); // Read it
+        assertEquals(10000, snapshot.getCount()); // Every value counted
+        assertEquals(5_000_000, snapshot.getPercentile(50), 5_000_000 * 0.04); // Median within 4%
+        assertEquals(9_900_000, snapshot.getPercentile(99), 9_900_000 * 0.04); // p99 within 4%
+        assertEquals(10_000_000, snapshot.getMax()); // Exact maximum
+        assertEquals(10_000_000, snapshot.getPercentile(100)); // Never above the maximum
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        // Test that every value falls into a bucket whose range contains it
+
+        for (long value : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value); // Bucket of the value
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value); // Upper bound holds
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value); // Lower bound holds
+        }
+    }
+
+    @Test
+    public void testFileExporter() throws Exception {
+        // Test that the file exporter writes every key and a final snapshot on close
+
+        Path file = folder.getRoot().toPath().resolve("metrics.properties"); // Export target
+        Closeable export = metrics.exportEvery(new FileMetricsExporter(file), Duration.ofHours(1)); // Never fires by itself
+        userService.loginUser("testUser", "wrong"); // Record something
+        export.close(); // Writes the final snapshot
+        List<String> lines = Files.readAllLines(file); // Read it back
+        assertTrue(lines.contains("loginUser.wrongPassword=1")); // The counter is there
+        assertTrue(lines.contains("registerUser.success=1")); // And the one from setUp
+    }
+
+    @Test
+    public void testJmxExporter() throws Exception {
+        // Test that exported values are readable through the platform MBean server
+
+        try (JmxMetricsExporter exporter = new JmxMetricsExporter("org.example:type=Metrics,name=test")) {
+            userService.loginUser("nobody", "password"); // Record something
+            exporter.export(metrics.snapshot()); // Publish it
+            Object value = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName("org.example:type=Metrics,name=test"), "loginUser.userNotFound"); // Read via JMX
+            assertEquals(1L, value); // Same as the snapshot
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Rule; // Annotation for JUnit rules
+import org.junit.Test; // Annotation for test methods
+import org.junit.rules.TemporaryFolder; // Rule that provides a fresh directory per test
+
+import java.io.IOException; // Thrown by the persistence layer
+import java.nio.channels.FileChannel; // Used to damage the log on purpose
+import java.nio.charset.StandardCharsets; // Reads the log files as bytes
+import java.nio.file.Files; // File system helpers
+import java.nio.file.Path; // Location of the data directory
+import java.nio.file.StandardOpenOption; // Options for opening the log file
+import java.time.Duration; // Checkpoint interval
+import java.util.ArrayList; // Collects the writers
+import java.util.Arrays; // Builds carts
+import java.util.List; // Purchase histories
+import java.util.concurrent.ExecutorService; // Runs the concurrent writers
+import java.util.concurrent.Future; // Result of each writer
+import java.util.concurrent.TimeUnit; // Timeouts
+import java.util.concurrent.atomic.AtomicInteger; // Counts fsyncs
+import java.util.stream.Stream; // Stream of directory entries
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class PersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(); // Fresh data directory for every test
+
+    private Path directory;  // Data directory used by the test
+
+    @Before
+    public void setUp() throws IOException {
+        // This method runs before each test.
+        // It creates an empty data directory.
+        directory = folder.newFolder("data").toPath(); // Create the data directory
+    }
+
+    @Test
+    public void testRecovery_ReplaysLog() throws IOException {
+        // Test that every kind of mutation survives a restart through the log alone
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(); // Create a real instance of UserService
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object
+        Book lee = new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99); // Initialize a second Book object
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object
+        bookService.addBook(orwell); // Add the first book
+        bookService.addBook(lee); // Add the second book
+        bookService.removeBook(lee); // Remove the second book again
+        orwell.setPrice(7.99); // Change a field of a cataloged book
+        userService.registerUser(user); // Register the user
+        user.getPurchasedBooks().add(orwell); // Simulate that the user purchased the book
+        bookService.addBookReview(user, orwell, "Amazing book!"); // Add a review
+        userService.updateUserProfile(user, "JaneDoe", "secret", "janedoe@example.com"); // Rename the user
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(); // Fresh services, as after a restart
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover and shut down again
+        assertEquals(1, recoveredBooks.getBookCount()); // Assert that only the first book is left
+        Book recovered = recoveredBooks.getBook(orwell.getId()); // Look the book up by its stable ID
+        assertEquals("1984", recovered.getTitle()); // Assert that the title survived
+        assertEquals(7.99, recovered.getPrice(), 0.0); // Assert that the price change survived
+        assertEquals(1, recovered.getReviews().size()); // Assert that the review survived
+        assertEquals(1, recoveredBooks.searchBook("Orwell").size()); // Assert that the search index was rebuilt
+        assertNull(recoveredUsers.loginUser("JohnDoe", "password")); // Assert that the old name is gone
+        assertNotNull(recoveredUsers.loginUser("JaneDoe", "secret")); // Assert that the rename survived
+        assertEquals(user.getPassword(), recoveredUsers.loginUser("JaneDoe", "secret").getPassword()); // The logged hash, not rehashed
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                assertFalse(new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains("secret")); // No plain-text password on disk
+            }
+        }
+    }
+
+    @Test
+    public void testRecovery_StockAndBalances() throws IOException {
+        // Test that stock, balances and paid purchases survive both the log and a snapshot
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(); // Create a real instance of UserService
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object
+        orwell.setStock(3); // Three copies, set before cataloging
+        Book lee = new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99); // Initialize a second Book object
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object
+        bookService.addBook(orwell); // Catalog both books
+        bookService.addBook(lee);
+        userService.registerUser(user); // Register the user
+        userService.deposit(user, 5000); // 50.00
+        bookService.purchaseBook(user, orwell); // Paid purchase before the snapshot
+        persistence.checkpoint(); // Snapshot holds stock 2 and balance 40.01
+        lee.setStock(10); // Stock set after cataloging, logged on its own
+        bookService.purchaseBook(user, lee); // Paid purchase in the log tail
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(); // Fresh services, as after a restart
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover and shut down again
+        User recoveredUser = recoveredUsers.loginUser("JohnDoe", "password"); // Look the user up
+        Book recoveredOrwell = recoveredBooks.getBook(orwell.getId()); // Look the books up by ID
+        Book recoveredLee = recoveredBooks.getBook(lee.getId());
+        assertEquals(2, recoveredOrwell.getStock()); // Stock from the snapshot
+        assertEquals(9, recoveredLee.getStock()); // Stock from the log tail
+        assertEquals(5000 - 999 - 1499, recoveredUser.getBalanceCents()); // Both purchases debited exactly once
+        assertTrue(recoveredUser.getPurchasedBooks().contains(recoveredOrwell)); // Ownership from the snapshot
+        assertTrue(recoveredUser.getPurchasedBooks().contains(recoveredLee)); // Ownership from the log tail
+    }
+
+    @Test
+    public void testRecovery_CartPurchase() throws IOException {
+        // Test that a cart bought in one call is replayed from its single log record
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(); // Create a real instance of UserService
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object
+        orwell.setStock(3); // Three copies
+        Book lee = new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99); // Initialize a second Book object
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object
+        bookService.addBook(orwell); // Catalog both books
+        bookService.addBook(lee);
+        userService.registerUser(user); // Register the user
+        userService.deposit(user, 5000); // 50.00
+        assertTrue(bookService.purchaseBooks(user, Arrays.asList(orwell, lee, orwell))); // Two copies of one book
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(); // Fresh services, as after a restart
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover and shut down again
+        User recoveredUser = recoveredUsers.loginUser("JohnDoe", "password"); // Look the user up
+        assertEquals(5000 - 999 - 1499 - 999, recoveredUser.getBalanceCents()); // Charged the cart total once
+        assertEquals(1, recoveredBooks.getBook(orwell.getId()).getStock()); // Both copies taken
+        assertEquals(3, recoveredUser.getPurchasedBooks().size()); // Whole cart recorded
+        assertEquals(Arrays.asList(recoveredBooks.getBook(lee.getId())),
+                recoveredBooks.getRecommendations(recoveredBooks.getBook(orwell.getId()), 5)); // Rebuilt from the history
+    }
+
+    @Test
+    public void testRecovery_KeepsPurchasesOfRemovedBooks() throws IOException {
+        // Test that a purchase of a book removed before the checkpoint is still in the history after a restart
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16); // Cheap hashing, one login
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object
+        User user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object
+        bookService.addBook(orwell); // Catalog the book
+        userService.registerUser(user); // Register the user
+        userService.deposit(user, 5000); // 50.00
+        bookService.purchaseBook(user, orwell); // Buy it
+        bookService.removeBook(orwell); // Then take it out of the catalog
+        persistence.checkpoint(); // The snapshot no longer catalogs the book
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16);
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover and shut down again
+        assertEquals(0, recoveredBooks.getBookCount()); // Assert that the book stays out of the catalog
+        List<Book> history = recoveredUsers.loginUser("JohnDoe", "password").getPurchasedBooks();
+        assertEquals(1, history.size()); // Assert that the purchase is still in the history
+        assertEquals(orwell.getId(), history.get(0).getId()); // Same book, same ID
+        assertEquals("1984", history.get(0).getTitle());
+    }
+
+    @Test
+    public void testRecovery_ReviewsAndHistoriesGivenDirectly() throws IOException {
+        // Test that reviews and purchase histories handed to constructors and setters survive a restart
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16); // Cheap hashing
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99, Arrays.asList("x")); // Reviewed already
+        Book huxley = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+        huxley.setReviews(Arrays.asList("y")); // Before it is cataloged
+        Book bradbury = new Book("Fahrenheit 451", "Ray Bradbury", "Dystopian", 8.99);
+        bookService.addBook(orwell);
+        bookService.addBook(huxley);
+        bookService.addBook(bradbury);
+        bradbury.setReviews(Arrays.asList("z1", "z2")); // After it is cataloged
+        userService.registerUser(new User("reader", "password", "reader@example.com", Arrays.asList(orwell))); // Bought it before
+        User other = new User("other", "password", "other@example.com");
+        userService.registerUser(other);
+        other.setPurchasedBooks(Arrays.asList(huxley, bradbury)); // After registering
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(1, UserService.DEFAULT_SESSION_TTL, 16);
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover from the log alone
+        assertEquals(Arrays.asList("x"), recoveredBooks.getBook(orwell.getId()).getReviews()); // Assert the reviews survived
+        assertEquals(Arrays.asList("y"), recoveredBooks.getBook(huxley.getId()).getReviews());
+        assertEquals(Arrays.asList("z1", "z2"), recoveredBooks.getBook(bradbury.getId()).getReviews());
+        List<Book> history = recoveredUsers.getUser("reader").getPurchasedBooks();
+        assertEquals(1, history.size()); // Assert the histories survived
+        assertEquals("1984", history.get(0).getTitle());
+        history = recoveredUsers.getUser("other").getPurchasedBooks();
+        assertEquals(2, history.size());
+        assertEquals("Fahrenheit 451", history.get(1).getTitle());
+    }
+
+    @Test
+    public void testOpen_RequiresEmptyServices() throws IOException {
+        // Test that recovery refuses services whose books could collide with recovered IDs
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99)); // Already holds a book
+        try {
+            Persistence.open(directory, bookService, new UserService()); // Try to recover into it
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Recovered books keep their logged IDs, so the services must start empty
+        }
+    }
+
+    @Test
+    public void testRecovery_SnapshotPlusTail() throws IOException {
+        // Test that recovery combines the latest snapshot with the log written after it
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(); // Create a real instance of UserService
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        for (int i = 0; i < 100; i++) {
+            bookService.addBook(new Book("Book " + i, "Author", "Genre", i)); // Add books before the checkpoint
+        }
+        persistence.checkpoint(); // Write a snapshot and drop the covered log
+        userService.registerUser(new User("JohnDoe", "password", "johndoe@example.com")); // Mutation after the snapshot
+        bookService.addBook(new Book("Late Book", "Author", "Genre", 1)); // Another mutation after the snapshot
+        persistence.close(); // Shut down
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        UserService recoveredUsers = new UserService(); // Fresh services, as after a restart
+        Persistence.open(directory, recoveredBooks, recoveredUsers).close(); // Recover and shut down again
+        assertEquals(101, recoveredBooks.getBookCount()); // Assert that snapshot and tail were both applied
+        assertNotNull(recoveredUsers.loginUser("JohnDoe", "password")); // Assert that the tail user exists
+    }
+
+    @Test
+    public void testRecovery_TornTailIsDropped() throws IOException {
+        // Test that a half-written last record is cut off instead of failing recovery
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        UserService userService = new UserService(); // Create a real instance of UserService
+        Persistence persistence = Persistence.open(directory, bookService, userService); // Attach persistence
+        bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99)); // First record
+        bookService.addBook(new Book("Animal Farm", "George Orwell", "Satire", 7.99)); // Second record
+        persistence.close(); // Shut down
+
+        Path log; // The only log segment
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst().get(); // Find it
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // Simulate a crash in the middle of the last write
+        }
+
+        BookService recoveredBooks = new BookService(); // Fresh services, as after a restart
+        Persistence.open(directory, recoveredBooks, new UserService()).close(); // Recover and shut down again
+        assertEquals(1, recoveredBooks.getBookCount()); // Assert that only the intact record was applied
+    }
+
+    @Test
+    public void testScheduledCheckpointSurvivesFailure() throws Exception {
+        // Test that a failed scheduled checkpoint does not stop the ones after it
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        Persistence persistence = Persistence.open(directory, bookService, new UserService(), Duration.ofMillis(100));
+        String first = String.format("snapshot-%020d.snap", 1); // What a checkpoint after one mutation writes
+        Files.createDirectory(directory.resolve(first + ".tmp")); // In the way of its temporary file
+        bookService.addBook(new Book("1984", "George Orwell", "Dystopian", 9.99)); // LSN 1
+
+        Path rolled = directory.resolve(String.format("wal-%020d.log", 2)); // Created by the first checkpoint
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!Files.exists(rolled) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.exists(rolled)); // The first checkpoint ran
+        bookService.addBook(new Book("Animal Farm", "George Orwell", "Satire", 7.99)); // LSN 2, a free file name
+
+        Path second = directory.resolve(String.format("snapshot-%020d.snap", 2));
+        while (!Files.exists(second) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        persistence.close();
+        assertFalse(Files.exists(directory.resolve(first))); // The first one failed
+        assertTrue(Files.exists(second)); // A later one still ran
+    }
+
+    @Test
+    public void testGroupCommit_ManyWritersSlowSync() throws Exception {
+        // Test that thousands of writers waiting on a slow fsync all complete and share the fsyncs
+
+        AtomicInteger forces = new AtomicInteger(); // fsyncs done
+        WriteAheadLog log = new WriteAheadLog(directory, 0, channel -> {
+            forces.incrementAndGet();
+            try {
+                Thread.sleep(5); // A slow disk
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.force(false);
+        });
+        ExecutorService executor = AsyncServices.newDefaultExecutor(); // Virtual threads on JDK 21+
+        List<Future<Long>> writers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Book book = new Book("Book " + i, "Author", "Genre", 1.0);
+            writers.add(executor.submit(() -> {
+                long lsn;
+                log.beginMutation();
+                try {
+                    lsn = log.append(Mutation.addBook(book));
+                } finally {
+                    log.endMutation();
+                }
+                log.awaitDurable(lsn); // Blocks for the writer's fsync
+                return lsn;
+            }));
+        }
+        for (Future<Long> writer : writers) {
+            assertTrue(writer.get(60, TimeUnit.SECONDS) > 0); // Every writer came back durable
+        }
+        executor.shutdown();
+        log.close();
+        assertTrue("fsyncs: " + forces.get(), forces.get() < 1000); // Most writers shared one, whatever the executor
+        List<Mutation> replayed = new ArrayList<>();
+        assertEquals(2000, WriteAheadLog.replay(directory, 0, replayed::add)); // All on disk
+        assertEquals(2000, replayed.size());
+    }
+}
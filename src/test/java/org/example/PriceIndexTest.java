@@ -0,0 +1,109 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Resizable list for expected results
+import java.util.Comparator; // Used to sort expected results by price
+import java.util.List; // Import List interface for handling lists of books
+import java.util.Random; // Source of reproducible prices
+import java.util.stream.Collectors; // Collects expected results
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class PriceIndexTest {
+
+    private static final Comparator<Book> BY_PRICE = Comparator.comparingDouble(Book::getPrice).thenComparingInt(Book::getId); // Expected order
+
+    private BookService bookService;  // Real instance of BookService, so the price index is actually exercised
+    private List<Book> catalog;  // Every book currently in the catalog, for brute-force comparison
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It fills a BookService with enough books to force the index to compact several times.
+        bookService = new BookService(); // Create a real instance of BookService
+        catalog = new ArrayList<>(); // Track the catalog contents
+        Random random = new Random(7); // Fixed seed so failures are reproducible
+        String[] genres = {"Dystopian", "Fiction", "Fantasy"}; // A few genres to filter on
+        for (int i = 0; i < 5000; i++) {
+            Book book = new Book("Book " + i, "Author " + (i % 40), genres[i % genres.length], random.nextInt(3000) / 100.0); // Create a book
+            bookService.addBook(book); // Add it to the catalog
+            catalog.add(book); // Track it
+        }
+        for (int i = 0; i < 1500; i++) {
+            Book book = catalog.remove(random.nextInt(catalog.size())); // Pick a random book
+            if (i % 2 == 0) {
+                bookService.removeBook(book); // Remove half of the picked books
+            } else {
+                book.setPrice(random.nextInt(3000) / 100.0); // Reprice the other half
+                catalog.add(book); // It stays in the catalog
+            }
+        }
+    }
+
+    @Test
+    public void testFindBooksByPriceRange() {
+        // Test that a range query returns exactly the books in the range, cheapest first
+
+        List<Book> expected = catalog.stream()
+                .filter(book -> book.getPrice() >= 5 && book.getPrice() <= 15)
+                .sorted(BY_PRICE)
+                .collect(Collectors.toList()); // Brute-force answer
+        assertEquals(expected, bookService.findBooksByPriceRange(5, 15)); // Compare with the index
+    }
+
+    @Test
+    public void testFindCheapestAndMostExpensive() {
+        // Test top-k in both directions
+
+        List<Book> sorted = catalog.stream().sorted(BY_PRICE).collect(Collectors.toList()); // Brute-force order
+        assertEquals(sorted.subList(0, 10), bookService.findCheapestBooks(10)); // Cheapest ten
+        List<Book> descending = new ArrayList<>(sorted); // Copy for the reverse order
+        descending.sort(BY_PRICE.reversed()); // Most expensive first
+        assertEquals(descending.subList(0, 10), bookService.findMostExpensiveBooks(10)); // Most expensive ten
+        assertTrue(bookService.findCheapestBooks(0).isEmpty()); // Zero is a valid, empty request
+        try {
+            bookService.findCheapestBooks(-1); // Negative count
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Rejected like the other queries' bad arguments
+        }
+        try {
+            bookService.findMostExpensiveBooks(-1);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Same for the other direction
+        }
+    }
+
+    @Test
+    public void testFindCheapestBooksInGenre() {
+        // Test top-k restricted to one genre
+
+        List<Book> expected = catalog.stream()
+                .filter(book -> book.getGenre().equals("Fantasy"))
+                .sorted(BY_PRICE)
+                .limit(5)
+                .collect(Collectors.toList()); // Brute-force answer
+        assertEquals(expected, bookService.findCheapestBooksInGenre("Fantasy", 5)); // Compare with the index
+    }
+
+    @Test
+    public void testSearchBookInPriceRange() {
+        // Test combining a keyword with a price range
+
+        List<Book> expected = catalog.stream()
+                .filter(book -> BookService.matches(book, "Author 1"))
+                .filter(book -> book.getPrice() >= 10 && book.getPrice() <= 12)
+                .sorted(BY_PRICE)
+                .collect(Collectors.toList()); // Brute-force answer
+        assertEquals(expected, bookService.searchBook("Author 1", 10, 12)); // Narrow range: walks the price index
+
+        List<Book> selective = catalog.stream()
+                .filter(book -> BookService.matches(book, "Book 123"))
+                .sorted(BY_PRICE)
+                .collect(Collectors.toList()); // Brute-force answer for a rare keyword
+        assertEquals(selective, bookService.searchBook("Book 123", 0, 30)); // Rare keyword: filters the search results
+    }
+}
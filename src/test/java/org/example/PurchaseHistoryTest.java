@@ -0,0 +1,83 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Plain list handed to setPurchasedBooks
+import java.util.Arrays; // Builds expected lists
+import java.util.List; // Import List interface for handling lists of books
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class PurchaseHistoryTest {
+
+    private User user;  // Test user whose history is exercised
+    private Book book1;  // First test book
+    private Book book2;  // Second test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates a user and two books that are not in any catalog.
+        user = new User("testUser", "password", "test@example.com"); // Create a test user
+        book1 = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        book2 = new Book("Animal Farm", "George Orwell", "Satire", 7.99); // Create another test book
+    }
+
+    @Test
+    public void testContainsTracksAddAndRemove() {
+        // Test that the ownership check follows every change to the list
+
+        List<Book> history = user.getPurchasedBooks(); // The user's history
+        assertFalse(history.contains(book1)); // Nothing purchased yet
+        history.add(book1); // Purchase one book
+        assertTrue(book1.getId() != 0); // Uncataloged books get an ID too
+        assertTrue(history.contains(book1)); // Owned
+        assertFalse(history.contains(book2)); // Not owned
+        history.set(0, book2); // Replace it
+        assertFalse(history.contains(book1)); // No longer owned
+        assertTrue(history.contains(book2)); // Owned instead
+        history.remove(book2); // Remove by value
+        assertFalse(history.contains(book2)); // Gone
+        assertTrue(history.isEmpty()); // Nothing left
+    }
+
+    @Test
+    public void testDuplicatePurchases() {
+        // Test that a book bought twice stays owned until both copies are removed
+
+        List<Book> history = user.getPurchasedBooks(); // The user's history
+        history.add(book1); // Bought twice
+        history.add(book1);
+        history.remove(0); // Remove one copy
+        assertTrue(history.contains(book1)); // Still owned
+        history.remove(0); // Remove the other
+        assertFalse(history.contains(book1)); // Gone
+    }
+
+    @Test
+    public void testSetPurchasedBooksIndexesTheCopy() {
+        // Test that a plain list handed in is indexed too
+
+        List<Book> plain = new ArrayList<>(Arrays.asList(book1, book2)); // Plain list
+        user.setPurchasedBooks(plain); // Replace the history
+        assertEquals(Arrays.asList(book1, book2), user.getPurchasedBooks()); // Same books, same order
+        assertTrue(user.getPurchasedBooks().contains(book2)); // Indexed
+        plain.clear(); // Changing the original afterwards
+        assertEquals(2, user.getPurchasedBooks().size()); // Does not affect the copy
+    }
+
+    @Test
+    public void testReviewWithLargeHistory() {
+        // Test that reviews work for a heavy buyer, through the ownership index
+
+        BookService bookService = new BookService(); // Create a real instance of BookService
+        bookService.addBook(book1); // Catalog the reviewed book
+        for (int i = 0; i < 100000; i++) {
+            user.getPurchasedBooks().add(new Book("Book " + i, "Author", "Genre", 1.0)); // Many other purchases
+        }
+        assertFalse(bookService.addBookReview(user, book1, "Great")); // Not purchased yet
+        user.getPurchasedBooks().add(book1); // Purchase it last
+        assertTrue(bookService.addBookReview(user, book1, "Great")); // Now allowed
+    }
+}
@@ -0,0 +1,155 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Collects futures
+import java.util.Arrays; // Builds carts
+import java.util.List; // Import List interface for handling lists
+import java.util.concurrent.CountDownLatch; // Releases all buyers at once
+import java.util.concurrent.ExecutorService; // Runs the concurrent buyers
+import java.util.concurrent.Executors; // Creates the thread pool
+import java.util.concurrent.Future; // Result of each buyer
+import java.util.concurrent.TimeUnit; // Timeouts
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class PurchaseTransactionTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private UserService userService;  // Real instance of UserService
+    private User user;  // Test user
+    private Book book;  // Test book, 9.99
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs a book and registers a user with 20.00 in their account.
+        bookService = new BookService(); // Create a real instance of BookService
+        userService = new UserService(); // Create a real instance of UserService
+        user = new User("testUser", "password", "test@example.com"); // Create a test user
+        book = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        bookService.addBook(book); // Catalog the book
+        userService.registerUser(user); // Register the user
+        userService.deposit(user, 2000); // 20.00
+    }
+
+    @Test
+    public void testPurchaseDebitsAndRecordsOwnership() {
+        // Test a successful purchase end to end
+
+        book.setStock(5); // Five copies for sale
+        assertTrue(bookService.purchaseBook(user, book)); // Purchase
+        assertEquals(1001, user.getBalanceCents()); // 20.00 - 9.99
+        assertEquals(4, book.getStock()); // One copy taken
+        assertTrue(user.getPurchasedBooks().contains(book)); // Ownership recorded
+        assertTrue(bookService.addBookReview(user, book, "Great")); // So the user can review it
+    }
+
+    @Test
+    public void testInsufficientFundsRollsBackStock() {
+        // Test that a failed debit gives the reserved copy back
+
+        book.setStock(5); // Five copies for sale
+        assertTrue(bookService.purchaseBook(user, book)); // 10.01 left
+        assertTrue(bookService.purchaseBook(user, book)); // 0.02 left
+        assertFalse(bookService.purchaseBook(user, book)); // Cannot afford a third
+        assertEquals(3, book.getStock()); // Only two copies taken
+        assertEquals(2, user.getBalanceCents()); // Balance untouched by the failed purchase
+        assertEquals(2, user.getPurchasedBooks().size()); // Two purchases recorded
+    }
+
+    @Test
+    public void testOutOfStockLeavesBalanceAlone() {
+        // Test that a sold-out book is not charged
+
+        book.setStock(0); // Sold out
+        assertFalse(bookService.purchaseBook(user, book)); // Purchase fails
+        assertEquals(2000, user.getBalanceCents()); // Nothing debited
+        assertFalse(user.getPurchasedBooks().contains(book)); // Nothing recorded
+    }
+
+    @Test
+    public void testUnlistedBookIsNotCharged() {
+        // Test that purchasing a book outside the catalog changes nothing
+
+        Book missing = new Book("Missing", "Nobody", "None", 1.00); // Not cataloged
+        assertFalse(bookService.purchaseBook(user, missing)); // Purchase fails
+        assertEquals(2000, user.getBalanceCents()); // Nothing debited
+        assertFalse(bookService.purchaseBook(user, null)); // Null is not in the catalog either
+    }
+
+    @Test
+    public void testFlashSaleNeverOversells() throws Exception {
+        // Test many buyers racing for a few copies
+
+        int copies = 100; // Copies for sale
+        int buyers = 2000; // Far more buyers than copies
+        book.setStock(copies);
+        ExecutorService executor = Executors.newFixedThreadPool(32); // Concurrent buyers
+        CountDownLatch start = new CountDownLatch(1); // Releases everyone at once
+        List<Future<Boolean>> results = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            User buyer = new User("buyer" + i, "password", "buyer" + i + "@example.com"); // Each buyer has funds
+            userService.deposit(buyer, 1000);
+            users.add(buyer);
+            results.add(executor.submit(() -> {
+                start.await(); // Wait for the sale to open
+                return bookService.purchaseBook(buyer, book);
+            }));
+        }
+        start.countDown(); // Open the sale
+        int sold = 0;
+        for (Future<Boolean> result : results) {
+            sold += result.get(30, TimeUnit.SECONDS) ? 1 : 0; // Count successful purchases
+        }
+        executor.shutdown();
+
+        assertEquals(copies, sold); // Exactly the copies available, never more
+        assertEquals(0, book.getStock()); // Sold out
+        long charged = users.stream().filter(buyer -> buyer.getBalanceCents() == 1).count(); // Paid 9.99 of 10.00
+        assertEquals(copies, charged); // Only the winners were charged
+        long owners = users.stream().filter(buyer -> buyer.getPurchasedBooks().contains(book)).count(); // Ownership recorded
+        assertEquals(copies, owners); // Only the winners own the book
+    }
+
+    @Test
+    public void testCartPurchasedTogether() {
+        // Test that a cart is charged once and recorded in cart order
+
+        Book second = new Book("Animal Farm", "George Orwell", "Satire", 5.00); // A second, cheaper book
+        second.setStock(2); // Two copies for sale
+        bookService.addBook(second); // Catalog it
+        assertTrue(bookService.purchaseBooks(user, Arrays.asList(book, second))); // Buy both
+        assertEquals(2000 - 999 - 500, user.getBalanceCents()); // Charged the total
+        assertEquals(1, second.getStock()); // One copy taken
+        assertEquals(Arrays.asList(book, second), user.getPurchasedBooks()); // Recorded in cart order
+        assertTrue(bookService.purchaseBooks(user, new ArrayList<>())); // An empty cart buys nothing and succeeds
+        assertEquals(501, user.getBalanceCents()); // Nothing charged for it
+    }
+
+    @Test
+    public void testCartIsAllOrNothing() {
+        // Test that one bad item in the cart fails the whole cart without side effects
+
+        Book soldOut = new Book("Animal Farm", "George Orwell", "Satire", 5.00); // Cataloged but sold out
+        soldOut.setStock(0);
+        bookService.addBook(soldOut);
+        book.setStock(5); // Five copies of the first book
+        assertFalse(bookService.purchaseBooks(user, Arrays.asList(book, soldOut))); // Second item out of stock
+        assertEquals(5, book.getStock()); // First item's copy given back
+        assertFalse(bookService.purchaseBooks(user, Arrays.asList(book, new Book("Missing", "Nobody", "None", 1.00)))); // Unlisted item
+        assertFalse(bookService.purchaseBooks(user, Arrays.asList(book, book, book))); // 29.97 is more than the balance
+        assertEquals(5, book.getStock()); // No copies taken by any of the failures
+        assertEquals(2000, user.getBalanceCents()); // Nothing charged
+        assertTrue(user.getPurchasedBooks().isEmpty()); // Nothing recorded
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveDepositRejected() {
+        // Test that deposits must add money
+
+        userService.deposit(user, 0); // Should throw
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Resizable list for expected results
+import java.util.List; // Import List interface for handling lists of books
+import java.util.stream.Collectors; // Collects streamed results
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class RankedSearchTest {
+
+    private BookService bookService;  // Real instance of BookService, so the search index is actually exercised
+    private List<Book> expected;  // Every "Orwell" match in the expected ranked order
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It fills the catalog with books matching "Orwell" in the title, the author or the genre.
+        bookService = new BookService(); // Create a real instance of BookService
+        List<Book> titles = new ArrayList<>(); // Title matches rank first
+        List<Book> authors = new ArrayList<>(); // Then author matches
+        List<Book> genres = new ArrayList<>(); // Then genre matches
+        for (int i = 0; i < 600; i++) {
+            Book book;
+            if (i % 3 == 0) {
+                book = new Book("Author " + i, "Someone", "Orwellian", 10.0); // Matches on genre only
+                genres.add(book);
+            } else if (i % 3 == 1) {
+                book = new Book("Novel " + i, "George Orwell", "Fiction", 10.0); // Matches on author only
+                authors.add(book);
+            } else {
+                book = new Book("Reading Orwell " + i, "Someone", "Essay", 10.0); // Matches on title
+                titles.add(book);
+            }
+            bookService.addBook(book); // Add it to the catalog
+            bookService.addBook(new Book("Unrelated " + i, "Nobody", "Poetry", 5.0)); // A book that never matches
+        }
+        expected = new ArrayList<>(titles); // Build the expected ranking
+        expected.addAll(authors);
+        expected.addAll(genres);
+    }
+
+    @Test
+    public void testSearchBookRanked() {
+        // Test that offset/limit pages follow the ranking: title, then author, then genre, each in catalog order
+
+        assertEquals(expected.subList(0, 10), bookService.searchBookRanked("Orwell", 0, 10)); // First page
+        assertEquals(expected.subList(195, 215), bookService.searchBookRanked("Orwell", 195, 20)); // Crosses from titles to authors
+        assertEquals(expected.subList(590, 600), bookService.searchBookRanked("Orwell", 590, 50)); // Short last page
+        assertTrue(bookService.searchBookRanked("Orwell", 600, 10).isEmpty()); // Past the end
+        assertEquals(expected.subList(0, 5), bookService.searchBookRanked("Or", 0, 5)); // Short keywords rank the same way
+    }
+
+    @Test
+    public void testSearchBookPageWalksAllResults() {
+        // Test that following cursors visits every match exactly once, in ranked order
+
+        List<Book> seen = new ArrayList<>(); // Everything returned so far
+        SearchPage page = bookService.searchBookPage("Orwell", null, 64); // First page
+        while (true) {
+            assertTrue(page.getBooks().size() <= 64); // Never more than the limit
+            seen.addAll(page.getBooks()); // Collect the page
+            if (!page.hasMore()) {
+                break; // Last page reached
+            }
+            page = bookService.searchBookPage("Orwell", page.getNextCursor(), 64); // Continue after the cursor
+        }
+        assertEquals(expected, seen); // Same results, same order
+    }
+
+    @Test
+    public void testCursorSurvivesConcurrentChanges() {
+        // Test that removing already-returned books does not shift the next page
+
+        SearchPage first = bookService.searchBookPage("Orwell", null, 10); // First page
+        for (Book book : first.getBooks()) {
+            bookService.removeBook(book); // Remove everything just returned
+        }
+        SearchPage second = bookService.searchBookPage("Orwell", first.getNextCursor(), 10); // Continue
+        assertEquals(expected.subList(10, 20), second.getBooks()); // Nothing skipped
+    }
+
+    @Test
+    public void testStreamSearchBook() {
+        // Test the lazy stream against the expected ranking
+
+        assertEquals(expected, bookService.streamSearchBook("Orwell").collect(Collectors.toList())); // Whole stream
+        assertEquals(expected.subList(0, 3), bookService.streamSearchBook("Orwell").limit(3).collect(Collectors.toList())); // Early stop
+        assertEquals(0, bookService.streamSearchBook("Tolkien").count()); // No matches
+    }
+
+    @Test
+    public void testHugeLimits() {
+        // Test that limits far beyond the number of matches return every match instead of overflowing
+
+        assertEquals(expected, bookService.searchBookRanked("Orwell", 0, Integer.MAX_VALUE - 8)); // Everything
+        assertEquals(expected.subList(10, 600), bookService.searchBookRanked("Orwell", 10, Integer.MAX_VALUE)); // Offset plus limit overflows
+        SearchPage page = bookService.searchBookPage("Orwell", null, Integer.MAX_VALUE); // One page holds it all
+        assertEquals(expected, page.getBooks());
+        assertFalse(page.hasMore()); // And nothing follows
+        assertEquals(expected, bookService.snapshot().searchBookPage("Orwell", null, Integer.MAX_VALUE).getBooks()); // Same on a snapshot
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCursor() {
+        // Test that a cursor not produced by searchBookPage is rejected
+
+        bookService.searchBookPage("Orwell", "not-a-cursor", 10); // Should throw
+    }
+}
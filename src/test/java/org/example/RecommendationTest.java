@@ -0,0 +1,167 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Builds carts
+import java.util.Arrays; // Builds expected lists
+import java.util.Collections; // Empty expected lists
+import java.util.List; // Import List interface for handling lists of books
+import java.util.concurrent.ExecutorService; // Runs the concurrent buyers
+import java.util.concurrent.Executors; // Creates the thread pool
+import java.util.concurrent.Future; // Waits for each buyer thread
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class RecommendationTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private UserService userService;  // Real instance of UserService, for deposits
+    private Book orwell;  // Test book
+    private Book huxley;  // Test book
+    private Book bradbury;  // Test book
+    private Book lee;  // Test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs three dystopian novels and one other book.
+        bookService = new BookService(); // Create a real instance of BookService
+        userService = new UserService();
+        orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize Book objects
+        huxley = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+        bradbury = new Book("Fahrenheit 451", "Ray Bradbury", "Dystopian", 8.99);
+        lee = new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99);
+        bookService.addBook(orwell); // Catalog them
+        bookService.addBook(huxley);
+        bookService.addBook(bradbury);
+        bookService.addBook(lee);
+    }
+
+    private User buyer(String name) {
+        User user = new User(name, "password", name + "@example.com"); // A buyer with plenty of money
+        userService.deposit(user, 1_000_000);
+        return user;
+    }
+
+    @Test
+    public void testBoughtTogetherRankedByCount() {
+        // Test that the books most often bought by the same customers come first
+
+        for (int i = 0; i < 3; i++) {
+            User user = buyer("dystopia" + i);
+            assertTrue(bookService.purchaseBook(user, orwell)); // Three customers buy Orwell, then Huxley
+            assertTrue(bookService.purchaseBook(user, huxley));
+        }
+        User other = buyer("mixed");
+        assertTrue(bookService.purchaseBooks(other, Arrays.asList(orwell, lee))); // One cart of Orwell and Lee
+
+        assertEquals(Arrays.asList(huxley, lee), bookService.getRecommendations(orwell, 5)); // Three, then one
+        assertEquals(Arrays.asList(huxley), bookService.getRecommendations(orwell, 1)); // Limited
+        assertEquals(Arrays.asList(orwell), bookService.getRecommendations(huxley, 5)); // Counted both ways
+        assertEquals(Collections.emptyList(), bookService.getRecommendations(bradbury, 5)); // Never bought
+    }
+
+    @Test
+    public void testFailedPurchaseIsNotCounted() {
+        // Test that only successful purchases count
+
+        User user = buyer("reader");
+        assertTrue(bookService.purchaseBook(user, orwell));
+        huxley.setStock(0); // Sold out
+        assertFalse(bookService.purchaseBook(user, huxley));
+        assertFalse(bookService.purchaseBooks(user, Arrays.asList(bradbury, huxley))); // Whole cart fails
+        assertEquals(Collections.emptyList(), bookService.getRecommendations(orwell, 5)); // Nothing bought with it
+    }
+
+    @Test
+    public void testRemovedBookIsNotRecommended() {
+        // Test that removing a book drops it from every list it was in
+
+        User user = buyer("reader");
+        assertTrue(bookService.purchaseBooks(user, Arrays.asList(orwell, huxley, bradbury)));
+        assertTrue(bookService.removeBook(huxley));
+        assertEquals(Arrays.asList(bradbury), bookService.getRecommendations(orwell, 5)); // Huxley is gone
+        assertEquals(Collections.emptyList(), bookService.getRecommendations(huxley, 5)); // Not cataloged
+    }
+
+    @Test
+    public void testListsStayBounded() {
+        // Test that one book bought with many others keeps a short list and the strongest neighbors
+
+        List<Book> others = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Book book = new Book("Other " + i, "Author " + i, "Genre", 1.0);
+            bookService.addBook(book);
+            others.add(book);
+        }
+        for (int i = 0; i < 600; i++) {
+            User user = buyer("buyer" + i);
+            assertTrue(bookService.purchaseBooks(user, Arrays.asList(orwell, others.get(i)))); // 600 distinct pairs
+            if (i % 10 == 0) {
+                assertTrue(bookService.purchaseBook(user, lee)); // Lee is bought with Orwell 60 times
+            }
+        }
+        List<Book> recommended = bookService.getRecommendations(orwell, 100);
+        assertEquals(CoPurchaseIndex.TOP_SIZE, recommended.size()); // Capped
+        assertEquals(lee, recommended.get(0)); // The strongest neighbor survives the pruning
+    }
+
+    @Test
+    public void testRebuildMatchesIncremental() {
+        // Test that rebuilding from purchase histories gives the same lists as counting as purchases happen
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User user = buyer("reader" + i);
+            users.add(user);
+            bookService.purchaseBook(user, i % 2 == 0 ? orwell : lee);
+            bookService.purchaseBooks(user, Arrays.asList(huxley, i % 3 == 0 ? bradbury : orwell));
+        }
+        List<List<Book>> before = new ArrayList<>();
+        for (Book book : Arrays.asList(orwell, huxley, bradbury, lee)) {
+            before.add(bookService.getRecommendations(book, 10));
+        }
+        bookService.rebuildRecommendations(users); // Start over from the histories
+        List<List<Book>> after = new ArrayList<>();
+        for (Book book : Arrays.asList(orwell, huxley, bradbury, lee)) {
+            after.add(bookService.getRecommendations(book, 10));
+        }
+        assertEquals(before, after); // Same counts, same order
+    }
+
+    @Test
+    public void testConcurrentPurchasesAreAllCounted() throws Exception {
+        // Test that purchases counted on several threads at once add up to the same lists as one at a time
+
+        List<Book> others = Arrays.asList(huxley, bradbury, lee);
+        ExecutorService pool = Executors.newFixedThreadPool(others.size());
+        try {
+            List<Future<?>> buyers = new ArrayList<>();
+            for (int t = 0; t < others.size(); t++) {
+                Book other = others.get(t);
+                int times = 100 * (t + 1); // Huxley 100 times, Bradbury 200, Lee 300
+                buyers.add(pool.submit(() -> {
+                    for (int i = 0; i < times; i++) {
+                        User user = buyer(other.getTitle() + " reader " + i);
+                        assertTrue(bookService.purchaseBooks(user, Arrays.asList(orwell, other)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> done : buyers) {
+                done.get(); // Rethrows any failed assertion
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(Arrays.asList(lee, bradbury, huxley), bookService.getRecommendations(orwell, 5)); // By count
+        for (Book other : others) {
+            assertEquals(Arrays.asList(orwell), bookService.getRecommendations(other, 5)); // Counted both ways
+        }
+
+        User last = buyer("last");
+        assertTrue(bookService.purchaseBooks(last, Arrays.asList(huxley, bradbury))); // One more pair
+        assertEquals(Arrays.asList(orwell, huxley), bookService.getRecommendations(bradbury, 5)); // 200, then 1
+    }
+}
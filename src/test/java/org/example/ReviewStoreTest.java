@@ -0,0 +1,97 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Collects pages
+import java.util.Arrays; // Builds expected lists
+import java.util.List; // Import List interface for handling lists of reviews
+import java.util.stream.Collectors; // Collects streamed reviews
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class ReviewStoreTest {
+
+    private BookService bookService;  // Real instance of BookService
+    private User user;  // Test user who owns the book
+    private Book book;  // Reviewed test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs a book and lets the user review it 100 times.
+        bookService = new BookService(); // Create a real instance of BookService
+        user = new User("testUser", "password", "test@example.com"); // Create a test user
+        book = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        bookService.addBook(book); // Catalog the book
+        user.getPurchasedBooks().add(book); // The user owns the book
+        for (int i = 0; i < 100; i++) {
+            assertTrue(bookService.addBookReview(user, book, "Review " + i)); // Add the reviews in order
+        }
+    }
+
+    @Test
+    public void testCountsAndView() {
+        // Test the incremental count and the read-only, oldest-first view
+
+        assertEquals(100, bookService.getReviewCount(book)); // Every review counted
+        assertEquals(100, book.getReviews().size()); // Same count through the view
+        assertEquals("Review 0", book.getReviews().get(0)); // Oldest first
+        assertEquals(0, bookService.getReviewCount(new Book("Unreviewed", "Nobody", "None", 1.0))); // No reviews yet
+        try {
+            book.getReviews().add("Sneaky"); // The view cannot be modified
+            fail("Expected the review view to be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // Reviews only go through addBookReview
+        }
+    }
+
+    @Test
+    public void testPagesAreNewestFirst() {
+        // Test walking every page with cursors
+
+        List<String> seen = new ArrayList<>(); // Everything returned so far
+        ReviewPage page = bookService.getReviewPage(book, null, 30); // Newest page
+        assertEquals(Arrays.asList("Review 99", "Review 98"), page.getReviews().subList(0, 2)); // Newest first
+        while (true) {
+            seen.addAll(page.getReviews()); // Collect the page
+            if (!page.hasMore()) {
+                break; // Oldest page reached
+            }
+            page = bookService.getReviewPage(book, page.getNextCursor(), 30); // Continue with older reviews
+        }
+        assertEquals(100, seen.size()); // Every review once
+        assertEquals("Review 0", seen.get(99)); // Oldest last
+    }
+
+    @Test
+    public void testNewReviewsDoNotShiftPages() {
+        // Test that reviews added between pages neither repeat nor skip older reviews
+
+        ReviewPage first = bookService.getReviewPage(book, null, 10); // Reviews 99 to 90
+        bookService.addBookReview(user, book, "Late review"); // New review arrives
+        ReviewPage second = bookService.getReviewPage(book, first.getNextCursor(), 10); // Continue
+        assertEquals("Review 89", second.getReviews().get(0)); // Picks up where the first page ended
+        assertEquals(101, second.getReviewCount()); // Count includes the new review
+    }
+
+    @Test
+    public void testStreamReviews() {
+        // Test the lazy newest-first stream
+
+        List<String> newest = bookService.streamReviews(book).limit(3).collect(Collectors.toList()); // First three
+        assertEquals(Arrays.asList("Review 99", "Review 98", "Review 97"), newest); // Newest first
+        assertEquals(100, bookService.streamReviews(book).count()); // All of them
+    }
+
+    @Test
+    public void testSetReviewsCopies() {
+        // Test that setReviews replaces the reviews with a copy
+
+        List<String> reviews = new ArrayList<>(Arrays.asList("Good", "Bad")); // Replacement reviews
+        book.setReviews(reviews); // Replace
+        reviews.add("Ignored"); // Changing the original afterwards
+        assertEquals(Arrays.asList("Good", "Bad"), book.getReviews()); // Does not affect the book
+        assertEquals(2, bookService.getReviewCount(book)); // Count follows the replacement
+    }
+}
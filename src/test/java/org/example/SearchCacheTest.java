@@ -0,0 +1,154 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.time.Duration; // TTL for the expiring cache
+import java.util.Arrays; // Builds expected result lists
+import java.util.Collections; // Empty result list
+import java.util.List; // Search results
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class SearchCacheTest {
+
+    private BookService bookService;  // Real instance of BookService with a small cache
+    private Book book1;  // First test book
+    private Book book2;  // Second test book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It creates a BookService whose cache holds two keywords, with two books in the catalog.
+        bookService = new BookService(2, null); // Two entries, no TTL
+        book1 = new Book("1984", "George Orwell", "Dystopian", 9.99); // Create a test book
+        book2 = new Book("Animal Farm", "George Orwell", "Satire", 7.99); // Create another test book
+        bookService.addBook(book1); // Add the books to the catalog
+        bookService.addBook(book2);
+    }
+
+    @Test
+    public void testRepeatedSearchHitsCache() {
+        // Test that the second identical search is served from the cache
+
+        assertEquals(Arrays.asList(book1, book2), bookService.searchBook("Orwell")); // Miss, computed
+        assertEquals(Arrays.asList(book1, book2), bookService.searchBook("Orwell")); // Hit, same result
+        SearchCacheStats stats = bookService.getSearchCacheStats(); // Read the counters
+        assertEquals(1, stats.getHits()); // One hit
+        assertEquals(1, stats.getMisses()); // One miss
+        assertEquals(1, stats.getSize()); // One keyword cached
+    }
+
+    @Test
+    public void testCachedResultIsSharedAndUnmodifiable() {
+        // Test that hits hand out the cached list itself, which callers cannot corrupt
+
+        List<Book> first = bookService.searchBook("Orwell"); // Miss, computed and cached
+        assertSame(first, bookService.searchBook("Orwell")); // Hit, not copied
+        try {
+            first.clear(); // Caller tries to empty the list
+            fail("Search results should be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // The cache is untouched
+        }
+        assertEquals(Arrays.asList(book1, book2), bookService.searchBook("Orwell"));
+    }
+
+    @Test
+    public void testAddAndRemoveInvalidateMatchingKeywords() {
+        // Test that catalog changes drop exactly the keywords they affect
+
+        bookService.searchBook("Orwell"); // Cache both keywords
+        bookService.searchBook("Satire");
+        Book book3 = new Book("Homage to Catalonia", "George Orwell", "Memoir", 12.50); // Another Orwell book
+        bookService.addBook(book3); // Affects "Orwell" but not "Satire"
+        assertEquals(1, bookService.getSearchCacheStats().getInvalidations()); // Only one entry dropped
+        assertEquals(Arrays.asList(book1, book2, book3), bookService.searchBook("Orwell")); // Fresh result
+
+        bookService.removeBook(book2); // Affects both keywords
+        assertEquals(Arrays.asList(book1, book3), bookService.searchBook("Orwell")); // Removed book is gone
+        assertEquals(Collections.emptyList(), bookService.searchBook("Satire")); // Removed book is gone
+    }
+
+    @Test
+    public void testFieldChangesInvalidateOldAndNewKeywords() {
+        // Test that renaming a cataloged book drops results it left and results it joined
+
+        assertEquals(Arrays.asList(book1), bookService.searchBook("1984")); // Cache the old title
+        assertEquals(Collections.emptyList(), bookService.searchBook("Nineteen")); // Cache the new title
+        book1.setTitle("Nineteen Eighty-Four"); // Rename the book
+        assertEquals(Collections.emptyList(), bookService.searchBook("1984")); // No longer matches
+        assertEquals(Arrays.asList(book1), bookService.searchBook("Nineteen")); // Now matches
+
+        bookService.searchBook("Orwell"); // Cache a keyword
+        long invalidations = bookService.getSearchCacheStats().getInvalidations(); // Counter before the change
+        book1.setPrice(5.00); // Price does not affect keyword search
+        assertEquals(invalidations, bookService.getSearchCacheStats().getInvalidations()); // Nothing dropped
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        // Test size-based LRU eviction
+
+        bookService.searchBook("Orwell"); // Cache three keywords in a two-entry cache
+        bookService.searchBook("Farm");
+        bookService.searchBook("Orwell"); // Touch "Orwell", so "Farm" is the eldest
+        bookService.searchBook("Satire"); // Evicts "Farm"
+        SearchCacheStats stats = bookService.getSearchCacheStats(); // Read the counters
+        assertEquals(1, stats.getEvictions()); // One eviction
+        assertEquals(2, stats.getSize()); // Bounded by the capacity
+        bookService.searchBook("Orwell"); // Still cached
+        assertEquals(2, bookService.getSearchCacheStats().getHits()); // Both "Orwell" repeats were hits
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() throws InterruptedException {
+        // Test that entries older than the TTL are recomputed
+
+        BookService expiring = new BookService(16, Duration.ofMillis(20)); // Short TTL
+        expiring.addBook(book1); // Add a book
+        expiring.searchBook("1984"); // Cache it
+        Thread.sleep(50); // Outlive the TTL
+        assertEquals(Arrays.asList(book1), expiring.searchBook("1984")); // Recomputed, same result
+        assertEquals(1, expiring.getSearchCacheStats().getExpirations()); // Counted as an expiration
+        assertEquals(0, expiring.getSearchCacheStats().getHits()); // Never served stale
+    }
+
+    @Test
+    public void testInvalidationInLargeCacheDropsOnlyMatches() {
+        // Test that a cache with more entries than the book's fields have substrings still drops exactly the matches
+
+        BookService large = new BookService(1024, null); // Room for every keyword
+        large.addBook(book1);
+        large.addBook(book2);
+        for (int i = 0; i < 500; i++) {
+            large.searchBook("Missing " + i); // Fill the cache with keywords that match nothing
+        }
+        large.searchBook("Orwell"); // Keywords the new book matches
+        large.searchBook("Geo");
+        large.searchBook("Satire"); // And one it does not
+        long invalidations = large.getSearchCacheStats().getInvalidations(); // Counter before the change
+        Book book3 = new Book("Homage to Catalonia", "George Orwell", "Memoir", 12.50); // Another Orwell book
+        large.addBook(book3);
+        assertEquals(invalidations + 2, large.getSearchCacheStats().getInvalidations()); // Only "Orwell" and "Geo"
+        assertEquals(Arrays.asList(book1, book2, book3), large.searchBook("Orwell")); // Fresh result
+        assertEquals(Arrays.asList(book2), large.searchBook("Satire")); // Still cached
+        assertEquals(502, large.getSearchCacheStats().getSize()); // 503 cached, two dropped, "Orwell" cached again
+    }
+
+    @Test
+    public void testLargeCacheStaysBounded() {
+        // Test that sampled eviction keeps the cache at its capacity and keeps recently used keywords
+
+        BookService bounded = new BookService(64, null); // Small enough to overflow
+        bounded.addBook(book1);
+        for (int i = 0; i < 1000; i++) {
+            bounded.searchBook("Keyword " + i);
+            bounded.searchBook("1984"); // Used all the time
+        }
+        SearchCacheStats stats = bounded.getSearchCacheStats(); // Read the counters
+        assertEquals(64, stats.getSize()); // Bounded by the capacity
+        assertEquals(1001 - 64, stats.getEvictions()); // Every keyword beyond it evicted one
+        assertTrue(stats.getHits() >= 990); // The hot keyword was almost never the one evicted
+    }
+}
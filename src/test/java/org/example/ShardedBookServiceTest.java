@@ -0,0 +1,171 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.ArrayList; // Builds the catalogs
+import java.util.Arrays; // Builds expected lists
+import java.util.List; // Import List interface for handling lists of books
+import java.util.Random; // Generates the random catalog
+import java.util.concurrent.CountDownLatch; // Holds a shard's write lock
+import java.util.concurrent.ExecutorService; // Runs the stalled writer and the blocked search
+import java.util.concurrent.Executors; // Creates the threads
+import java.util.concurrent.ForkJoinPool; // The pool the fan-outs share
+import java.util.concurrent.Future; // Results of the background calls
+import java.util.concurrent.TimeUnit; // Timeouts
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class ShardedBookServiceTest {
+
+    private ShardedBookService sharded;  // Catalog under test, four shards
+    private BookService single;  // Unsharded catalog with the same books, for comparison
+    private List<Book> books;  // Every cataloged book
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It catalogs the same 1000 random books in a sharded and an unsharded catalog.
+        sharded = new ShardedBookService(4); // Four shards
+        single = new BookService(); // One catalog
+        books = new ArrayList<>();
+        Random random = new Random(42); // Fixed seed, reproducible
+        for (int i = 0; i < 1000; i++) {
+            Book book = new Book("Title " + random.nextInt(300), "Author " + random.nextInt(50),
+                    "Genre " + random.nextInt(5), 1 + random.nextInt(5000) / 100.0);
+            books.add(book);
+        }
+        assertEquals(1000, sharded.addBooks(books).size()); // Bulk add, split across shards
+        for (Book book : books) {
+            single.addBook(book); // Same books, same IDs, in the same order
+        }
+    }
+
+    @Test
+    public void testQueriesMatchUnshardedCatalog() {
+        // Test that scatter-gather returns what a single catalog would
+
+        assertEquals(1000, sharded.getBookCount()); // Every book somewhere
+        for (String keyword : new String[]{"Title 1", "Author 7", "Genre 3", "Nothing"}) {
+            assertEquals(single.searchBook(keyword), sharded.searchBook(keyword)); // Same books, same order
+        }
+        assertEquals(single.fuzzySearchBook("autor 7"), sharded.fuzzySearchBook("autor 7")); // Fuzzy too
+        assertEquals(single.findBooksByPriceRange(10, 20), sharded.findBooksByPriceRange(10, 20)); // Cheapest first
+        assertEquals(single.findCheapestBooks(25), sharded.findCheapestBooks(25)); // Global top-k
+        assertEquals(single.countBooksInGenre("Genre 2"), sharded.countBooksInGenre("Genre 2")); // Summed facets
+        assertEquals(single.countBooksByAuthor("Author 3"), sharded.countBooksByAuthor("Author 3"));
+    }
+
+    @Test
+    public void testWritesGoToOwningShard() {
+        // Test adds, removals and field changes through the owning shard
+
+        Book book = new Book("Unique Title", "Unique Author", "Unique Genre", 5.0);
+        assertTrue(sharded.addBook(book)); // Added once
+        assertFalse(sharded.addBook(book)); // Not twice, even though it could hash anywhere
+        assertSame(book, sharded.getBook(book.getId())); // Found on its shard
+        book.setTitle("Renamed"); // The owning shard's indexes follow
+        assertEquals(Arrays.asList(book), sharded.searchBook("Renamed"));
+        assertTrue(sharded.removeBook(book)); // Removed from its shard
+        assertFalse(sharded.removeBook(book)); // Already gone
+        assertNull(sharded.getBook(book.getId()));
+        assertEquals(1000, sharded.getBookCount()); // Back to the original books
+    }
+
+    @Test
+    public void testPurchaseAndReviewOnOwningShard() {
+        // Test per-book operations routed by ID
+
+        User user = new User("reader", "password", "reader@example.com"); // A buyer
+        new UserService().deposit(user, 10_000); // 100.00
+        Book book = books.get(0);
+        assertTrue(sharded.purchaseBook(user, book)); // Bought through its shard
+        assertTrue(sharded.addBookReview(user, book, "Great")); // Reviewed through its shard
+        assertFalse(sharded.purchaseBook(user, new Book("Missing", "Nobody", "None", 1.0))); // Not cataloged
+    }
+
+    @Test
+    public void testMetricsRecordEachSearchOnce() {
+        // Test that a fanned-out search is one operation in the metrics, not one per shard
+
+        Metrics metrics = new Metrics(); // Fresh counters
+        sharded.setMetrics(metrics);
+        sharded.searchBook("Title 1"); // Runs on all four shards
+        sharded.searchBook("Nothing"); // Finds nothing anywhere
+        sharded.fuzzySearchBook("autor 7");
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCount(Metrics.Operation.SEARCH_BOOK)); // Once per call
+        assertEquals(1, snapshot.getCount(Metrics.Operation.SEARCH_BOOK, Metrics.Outcome.NO_RESULTS)); // Outcome of the merged result
+        assertEquals(1, snapshot.getCount(Metrics.Operation.FUZZY_SEARCH_BOOK));
+    }
+
+    @Test
+    public void testSingleShardAndValidation() {
+        // Test the degenerate single-shard case and a bad shard count
+
+        ShardedBookService one = new ShardedBookService(1); // No fan-out at all
+        one.addBooks(books);
+        assertEquals(single.searchBook("Title 2"), one.searchBook("Title 2")); // Same results
+        try {
+            new ShardedBookService(0); // No shards
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // At least one shard is needed
+        }
+    }
+
+    @Test
+    public void testSearchWaitingOnShardLockDoesNotStarvePool() throws Exception {
+        // Test that a fan-out stuck behind a shard's writer leaves the pool free for other fan-outs
+
+        ForkJoinPool pool = new ForkJoinPool(1); // One worker, easy to starve
+        ShardedBookService stuck = new ShardedBookService(2, 0, pool); // Shares the pool with other
+        ShardedBookService other = new ShardedBookService(2, 0, pool);
+        Book orwell = new Book("1984", "George Orwell", "Dystopian", 9.99);
+        assertTrue(other.addBook(orwell));
+        Book huxley = new Book("Brave New World", "Aldous Huxley", "Dystopian", 12.99);
+        CountDownLatch appending = new CountDownLatch(1); // Counted down once the writer holds the lock
+        CountDownLatch release = new CountDownLatch(1); // Lets the writer finish
+        stuck.shardOf(huxley.assignId()).setJournal(new Journal() { // Stalls inside the write
+            @Override
+            public void beginMutation() {
+            }
+
+            @Override
+            public long append(Mutation mutation) {
+                appending.countDown();
+                try {
+                    release.await(); // Stall with the shard's write lock held
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }
+
+            @Override
+            public void endMutation() {
+            }
+
+            @Override
+            public void awaitDurable(long lsn) {
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Boolean> writer = executor.submit(() -> stuck.addBook(huxley));
+            assertTrue(appending.await(10, TimeUnit.SECONDS)); // The shard is write-locked
+            Future<List<Book>> blocked = executor.submit(() -> stuck.searchBook("Dystopian")); // Waits on that shard
+            Thread.sleep(100); // Let it reach the lock
+            assertFalse(blocked.isDone());
+            Future<List<Book>> unrelated = executor.submit(() -> other.searchBook("Dystopian"));
+            assertEquals(Arrays.asList(orwell), unrelated.get(10, TimeUnit.SECONDS)); // The pool still serves others
+            release.countDown();
+            assertTrue(writer.get(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(huxley), blocked.get(10, TimeUnit.SECONDS)); // Sees the finished write
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+}
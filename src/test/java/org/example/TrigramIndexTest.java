@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.util.List; // Import List interface for handling lists of books
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class TrigramIndexTest {
+
+    private BookService bookService;  // Real instance of BookService, so the index is actually exercised
+    private Book orwell;  // A sample book object used in tests
+    private Book lee;  // A second sample book object used in tests
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It sets up a fresh BookService holding two books.
+        bookService = new BookService(); // Create a real instance of BookService
+        orwell = new Book("1984", "George Orwell", "Dystopian", 9.99); // Initialize a Book object for use in tests
+        lee = new Book("To Kill a Mockingbird", "Harper Lee", "Fiction", 14.99); // Initialize a second Book object
+        bookService.addBook(orwell); // Add the first book to the catalog
+        bookService.addBook(lee); // Add the second book to the catalog
+    }
+
+    @Test
+    public void testSearchBook_MatchesLinearScan() {
+        // Test that indexed searches return exactly what the linear scan returns, for short and long keywords
+
+        String[] keywords = {"", "o", "19", "1984", "Orwell", "rge Or", "i", "Fiction", "ion", "Nothing", "Lee"};
+        for (String keyword : keywords) {
+            assertEquals(keyword, bookService.linearSearch(keyword), bookService.searchBook(keyword)); // Compare both search paths
+        }
+    }
+
+    @Test
+    public void testSearchBook_KeepsCatalogOrder() {
+        // Test that results come back in the order the books were added, like the linear scan
+
+        Book animalFarm = new Book("Animal Farm", "George Orwell", "Satire", 7.99); // Create a third book by the same author
+        bookService.addBook(animalFarm); // Add it after the other two
+        List<Book> result = bookService.searchBook("Orwell"); // Search by the shared author
+        assertEquals(2, result.size()); // Assert that both Orwell books are found
+        assertSame(orwell, result.get(0)); // Assert that the first added book comes first
+        assertSame(animalFarm, result.get(1)); // Assert that the later book comes second
+    }
+
+    @Test
+    public void testSearchBook_AfterRemove() {
+        // Test that a removed book is no longer found through the index
+
+        bookService.removeBook(orwell); // Remove the book from the catalog
+        assertTrue(bookService.searchBook("Orwell").isEmpty()); // Assert that the index no longer returns it
+    }
+
+    @Test
+    public void testSearchBook_AfterFieldChange() {
+        // Test that changing a cataloged book's title is reflected by the index
+
+        orwell.setTitle("Nineteen Eighty-Four"); // Rename the book while it is in the catalog
+        assertTrue(bookService.searchBook("1984").isEmpty()); // Assert that the old title no longer matches
+        assertEquals(1, bookService.searchBook("Eighty").size()); // Assert that the new title matches
+        assertEquals(bookService.linearSearch("Nin"), bookService.searchBook("Nin")); // Assert both paths still agree
+    }
+}
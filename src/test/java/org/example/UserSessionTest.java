@@ -0,0 +1,120 @@
+package org.example;
+
+import org.junit.Before; // Annotation for setup method
+import org.junit.Test; // Annotation for test methods
+
+import java.time.Duration; // Session TTLs
+
+import static org.junit.Assert.*; // Static import for JUnit assertions
+
+public class UserSessionTest {
+
+    private UserService userService;  // Real instance of UserService, with cheap hashing to keep the test fast
+    private User user;  // Registered test user
+
+    @Before
+    public void setUp() {
+        // This method runs before each test.
+        // It registers one user with a low hashing cost.
+        userService = new UserService(1000, UserService.DEFAULT_SESSION_TTL, 100); // 1000 PBKDF2 rounds
+        user = new User("JohnDoe", "password", "johndoe@example.com"); // Initialize a User object
+        assertTrue(userService.registerUser(user)); // Register it
+    }
+
+    @Test
+    public void testPasswordIsStoredHashed() {
+        // Test that only a salted hash is kept, and that logins still work against it
+
+        assertTrue(user.getPassword().startsWith("pbkdf2-sha256$1000$")); // Algorithm and cost travel with the hash
+        assertFalse(user.getPassword().contains("password")); // No plain text
+        assertSame(user, userService.loginUser("JohnDoe", "password")); // Right password
+        assertNull(userService.loginUser("JohnDoe", "Password")); // Wrong password
+        User twin = new User("JaneDoe", "password", "janedoe@example.com"); // Same password
+        assertTrue(userService.registerUser(twin));
+        assertNotEquals(user.getPassword(), twin.getPassword()); // Different salt, different hash
+        assertFalse(userService.registerUser(new User("JohnDoe", "other", "other@example.com"))); // Name taken
+        assertSame(user, userService.loginUser("JohnDoe", "password")); // Failed registration changed nothing
+    }
+
+    @Test
+    public void testSessionSkipsThePassword() {
+        // Test opening, validating and closing a session
+
+        Metrics metrics = new Metrics();
+        userService.setMetrics(metrics);
+        String token = userService.openSession("JohnDoe", "password"); // One hashed login
+        assertNotNull(token);
+        assertNull(userService.openSession("JohnDoe", "wrong")); // Failed logins get no token
+        assertSame(user, userService.authenticate(token)); // Validated without the password
+        assertSame(user, userService.authenticate(token)); // As often as needed
+        assertNotEquals(token, userService.openSession("JohnDoe", "password")); // Every login gets its own token
+        assertNull(userService.authenticate("forged")); // Unknown token
+        assertNull(userService.authenticate(null));
+        assertTrue(userService.closeSession(token)); // Log out
+        assertNull(userService.authenticate(token)); // Closed
+        assertFalse(userService.closeSession(token)); // Already closed
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCount(Metrics.Operation.AUTHENTICATE, Metrics.Outcome.SUCCESS));
+        assertEquals(3, snapshot.getCount(Metrics.Operation.AUTHENTICATE, Metrics.Outcome.INVALID_SESSION));
+        assertEquals(2, snapshot.getCount(Metrics.Operation.LOGIN_USER, Metrics.Outcome.SUCCESS)); // Only the logins hashed
+    }
+
+    @Test
+    public void testProfileUpdateRevokesSessions() {
+        // Test that a profile update revokes every token of the user
+
+        String token = userService.openSession("JohnDoe", "password");
+        String other = userService.openSession("JohnDoe", "password"); // A second device
+        String hash = user.getPassword();
+        assertTrue(userService.updateUserProfile(user, "JohnD", "password", "new@example.com")); // New username
+        assertNull(userService.authenticate(token)); // Revoked
+        assertNull(userService.authenticate(other)); // Every session of the user
+        assertEquals(hash, user.getPassword()); // Same password, same hash
+
+        token = userService.openSession("JohnD", "password");
+        assertTrue(userService.updateUserProfile(user, "John", "secret", "new@example.com")); // New password
+        assertNull(userService.authenticate(token)); // Revoked
+        assertNull(userService.loginUser("John", "password")); // Old password no longer works
+        assertSame(user, userService.authenticate(userService.openSession("John", "secret"))); // New one does
+    }
+
+    @Test
+    public void testChangingBackDoesNotRestoreSessions() {
+        // Test that a revoked token stays revoked when the username or password is changed back
+
+        String token = userService.openSession("JohnDoe", "password");
+        assertTrue(userService.updateUserProfile(user, "JohnD", "password", "new@example.com")); // Rename
+        assertTrue(userService.updateUserProfile(user, "JohnDoe", "password", "new@example.com")); // And back
+        assertNull(userService.authenticate(token)); // Still revoked
+
+        token = userService.openSession("JohnDoe", "password");
+        String hash = user.getPassword();
+        assertTrue(userService.updateUserProfile(user, "JohnD", "secret", "new@example.com")); // New password
+        assertNotEquals(hash.split("\\$")[2], user.getPassword().split("\\$")[2]); // With a fresh salt
+        assertSame(user, userService.loginUser("JohnD", "secret"));
+        assertTrue(userService.updateUserProfile(user, "JohnDoe", "password", "new@example.com")); // The old one again
+        assertNull(userService.authenticate(token)); // Still revoked
+        assertSame(user, userService.loginUser("JohnDoe", "password"));
+        assertNull(userService.loginUser("JohnDoe", "secret"));
+        assertNotEquals(hash, user.getPassword()); // Password reuse does not show in the stored hash
+        assertTrue(user.getPassword().startsWith("pbkdf2-sha256$1000$")); // Stored at the service's cost
+    }
+
+    @Test
+    public void testSessionsExpireAndStayBounded() throws InterruptedException {
+        // Test the TTL and the capacity of the session cache
+
+        UserService small = new UserService(1000, Duration.ofMillis(200), 2); // Two sessions, 200 ms each
+        small.registerUser(new User("reader", "password", "reader@example.com"));
+        String first = small.openSession("reader", "password");
+        String second = small.openSession("reader", "password");
+        String third = small.openSession("reader", "password"); // Over capacity
+        assertNull(small.authenticate(first)); // The oldest was evicted
+        assertNotNull(small.authenticate(second));
+        assertNotNull(small.authenticate(third));
+        Thread.sleep(300); // Past the TTL
+        assertNull(small.authenticate(second)); // Expired
+        assertNull(small.authenticate(third));
+    }
+}